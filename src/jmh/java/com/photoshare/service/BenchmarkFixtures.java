@@ -0,0 +1,82 @@
+package com.photoshare.service;
+
+import com.photoshare.model.Comment;
+import com.photoshare.metrics.StorageMetrics;
+import com.photoshare.model.Photo;
+import com.photoshare.storage.ContainerBulkheads;
+import com.photoshare.storage.InMemoryStorageBackend;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Shared setup for the benchmarks: the real storage services wired against
+ * {@link InMemoryStorageBackend}, and deterministic photo data.
+ */
+final class BenchmarkFixtures {
+    
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2024, 1, 1, 0, 0);
+    
+    private BenchmarkFixtures() {}
+    
+    /** A context with the storage services only; properties fall back to their defaults. */
+    static AnnotationConfigApplicationContext storageContext() {
+        return storageContext(Map.of());
+    }
+    
+    static AnnotationConfigApplicationContext storageContext(Map<String, Object> properties) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("benchmark", properties));
+        context.register(InMemoryStorageBackend.class, ContainerBulkheads.class, StorageMetrics.class,
+                BlobStorageService.class, FeedManifest.class, PhotoFeedIndex.class, EngagementAggregator.class,
+                CommentStore.class, PhotoSearchIndex.class);
+        context.refresh();
+        return context;
+    }
+    
+    static Photo photo(Random random, int commentCount, int likerCount) {
+        Photo photo = new Photo();
+        photo.setId(uuid(random));
+        photo.setUrl("https://example.blob.core.windows.net/images/" + photo.getId() + "-photo.jpg");
+        photo.setTitle("Photo " + random.nextInt(1_000_000));
+        photo.setCaption("A caption that is about as long as a typical one");
+        photo.setLocation("Seattle, WA");
+        photo.setTags("travel,city,night");
+        photo.setCreatorId(uuid(random));
+        photo.setCreatorName("user" + random.nextInt(10_000));
+        photo.setUploadedAt(EPOCH.plusSeconds(random.nextInt(365 * 24 * 3600)));
+        for (int i = 0; i < likerCount; i++) {
+            photo.getLikedBy().add(uuid(random));
+        }
+        photo.setLikes(likerCount);
+        for (int i = 0; i < commentCount; i++) {
+            photo.getComments().add(new Comment(uuid(random), uuid(random), "user" + i, "Comment number " + i));
+        }
+        photo.setCommentCount(commentCount);
+        photo.setRating(1 + random.nextInt(5));
+        photo.setRatingCount(1);
+        return photo;
+    }
+    
+    static List<Photo> photos(Random random, int count) {
+        List<Photo> photos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            photos.add(photo(random, 0, 0));
+        }
+        return photos;
+    }
+    
+    static String uuid(Random random) {
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+    
+    static String photoKey(Photo photo) {
+        return photo.getId() + ".json";
+    }
+}
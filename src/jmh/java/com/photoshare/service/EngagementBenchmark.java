@@ -0,0 +1,105 @@
+package com.photoshare.service;
+
+import com.photoshare.model.Comment;
+import com.photoshare.model.Photo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Like, rate and comment read-modify-write cycles against the in-memory
+ * backend. Every iteration starts from freshly seeded photos so documents do
+ * not keep growing across iterations. Run with -t to add contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngagementBenchmark {
+    
+    private static final int PHOTO_COUNT = 1000;
+    
+    private AnnotationConfigApplicationContext context;
+    private BlobStorageService storage;
+    private EngagementAggregator aggregator;
+    private CommentStore commentStore;
+    private String[] photoIds;
+    
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        context = BenchmarkFixtures.storageContext();
+        storage = context.getBean(BlobStorageService.class);
+        aggregator = context.getBean(EngagementAggregator.class);
+        commentStore = context.getBean(CommentStore.class);
+        
+        List<Photo> photos = BenchmarkFixtures.photos(new Random(42), PHOTO_COUNT);
+        photoIds = new String[photos.size()];
+        for (int i = 0; i < photos.size(); i++) {
+            storage.saveObject("photos", BenchmarkFixtures.photoKey(photos.get(i)), photos.get(i));
+            photoIds[i] = photos.get(i).getId();
+        }
+    }
+    
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        context.close();
+    }
+    
+    /** A like written straight through, as the endpoint did before write-behind. */
+    @Benchmark
+    public Photo likeReadModifyWrite() throws Exception {
+        String userId = UUID.randomUUID().toString();
+        return storage.updateObject("photos", randomPhotoId() + ".json", Photo.class, photo -> {
+            if (!photo.getLikedBy().add(userId)) {
+                return false;
+            }
+            photo.setLikes(photo.getLikes() + 1);
+            return true;
+        });
+    }
+    
+    /** A like through the write-behind aggregator; the flush runs on its own thread. */
+    @Benchmark
+    public boolean likeAggregated() {
+        return aggregator.recordLike(randomPhotoId(), UUID.randomUUID().toString());
+    }
+    
+    @Benchmark
+    public Photo rateReadModifyWrite() throws Exception {
+        int rating = ThreadLocalRandom.current().nextInt(1, 6);
+        return storage.updateObject("photos", randomPhotoId() + ".json", Photo.class, photo -> {
+            double total = photo.getRating() * photo.getRatingCount() + rating;
+            photo.setRatingCount(photo.getRatingCount() + 1);
+            photo.setRating(total / photo.getRatingCount());
+            return true;
+        });
+    }
+    
+    @Benchmark
+    public Photo commentAppend() throws Exception {
+        Comment comment = new Comment(UUID.randomUUID().toString(), "bench-user", "bench", "Nice shot");
+        return commentStore.addComment(randomPhotoId(), comment);
+    }
+    
+    private String randomPhotoId() {
+        return photoIds[ThreadLocalRandom.current().nextInt(photoIds.length)];
+    }
+}
@@ -0,0 +1,85 @@
+package com.photoshare.service;
+
+import com.photoshare.model.Photo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Assembling the feed: the original list-sort-collect pipeline against the
+ * ordered in-memory index that replaced it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FeedBenchmark {
+    
+    @Param({"1000", "10000", "100000"})
+    public int photoCount;
+    
+    private AnnotationConfigApplicationContext context;
+    private BlobStorageService storage;
+    private PhotoFeedIndex feedIndex;
+    private List<Photo> photos;
+    
+    @Setup
+    public void setUp() throws Exception {
+        context = BenchmarkFixtures.storageContext();
+        storage = context.getBean(BlobStorageService.class);
+        feedIndex = context.getBean(PhotoFeedIndex.class);
+        photos = BenchmarkFixtures.photos(new Random(42), photoCount);
+        for (Photo photo : photos) {
+            storage.saveObject("photos", BenchmarkFixtures.photoKey(photo), photo);
+        }
+        feedIndex.ensureLoaded();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+    
+    /** The sort and collect step of the original getAllPhotos, on already decoded photos. */
+    @Benchmark
+    public List<Photo> sortCollect() {
+        return photos.stream()
+                .sorted((a, b) -> b.getUploadedAt().compareTo(a.getUploadedAt()))
+                .collect(Collectors.toList());
+    }
+    
+    /** The original getAllPhotos end to end: bulk fetch, decode, sort. */
+    @Benchmark
+    public List<Photo> listDecodeSort() throws Exception {
+        return storage.listObjects("photos", Photo.class).stream()
+                .sorted((a, b) -> b.getUploadedAt().compareTo(a.getUploadedAt()))
+                .collect(Collectors.toList());
+    }
+    
+    @Benchmark
+    public List<Photo> indexAll() {
+        return feedIndex.all();
+    }
+    
+    @Benchmark
+    public PhotoFeedIndex.FeedPage indexFirstPage() {
+        return feedIndex.page(null, 20);
+    }
+}
@@ -0,0 +1,70 @@
+package com.photoshare.service;
+
+import com.photoshare.model.Photo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storage encoding and decoding of a single photo document as its inline
+ * comments and likedBy set grow, in each stored metadata format.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PhotoCodecBenchmark {
+    
+    @Param({"0", "100", "1000"})
+    public int commentCount;
+    
+    @Param({"0", "1000", "10000"})
+    public int likerCount;
+    
+    @Param({"json", "smile"})
+    public String metadataFormat;
+    
+    private AnnotationConfigApplicationContext context;
+    private BlobStorageService storage;
+    private Photo photo;
+    private byte[] encoded;
+    
+    @Setup
+    public void setUp() throws Exception {
+        context = BenchmarkFixtures.storageContext(Map.of("photoshare.storage.metadata-format", metadataFormat));
+        storage = context.getBean(BlobStorageService.class);
+        photo = BenchmarkFixtures.photo(new Random(42), commentCount, likerCount);
+        encoded = storage.encode(photo);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public byte[] encode() throws Exception {
+        return storage.encode(photo);
+    }
+    
+    @Benchmark
+    public Photo decode() throws Exception {
+        return storage.decode(encoded, Photo.class);
+    }
+}
@@ -0,0 +1,85 @@
+package com.photoshare.service;
+
+import com.photoshare.model.Photo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency against catalog size, for a common term, a rare
+ * combination, and a combination that matches nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SearchBenchmark {
+    
+    private static final String[] WORDS = {
+            "sunset", "beach", "city", "night", "mountain", "lake", "forest", "street", "portrait", "food",
+            "coffee", "rain", "snow", "bridge", "market", "river", "sky", "dog", "cat", "garden"};
+    private static final String[] PLACES = {"Seattle, WA", "Portland, OR", "Boston, MA", "Austin, TX", "Denver, CO"};
+    
+    @Param({"10000", "100000"})
+    public int photoCount;
+    
+    private AnnotationConfigApplicationContext context;
+    private PhotoSearchIndex searchIndex;
+    
+    @Setup
+    public void setUp() throws Exception {
+        context = BenchmarkFixtures.storageContext();
+        PhotoFeedIndex feedIndex = context.getBean(PhotoFeedIndex.class);
+        searchIndex = context.getBean(PhotoSearchIndex.class);
+        feedIndex.ensureLoaded();
+        
+        Random random = new Random(42);
+        for (Photo photo : BenchmarkFixtures.photos(random, photoCount)) {
+            photo.setTitle(word(random) + " " + word(random));
+            photo.setCaption(word(random) + " and " + word(random));
+            photo.setTags(word(random) + "," + word(random));
+            photo.setLocation(PLACES[random.nextInt(PLACES.length)]);
+            feedIndex.put(photo);
+        }
+        searchIndex.rebuild();
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public PhotoSearchIndex.SearchPage commonTerm() throws Exception {
+        return searchIndex.search("sunset", null, null, null, 20);
+    }
+    
+    @Benchmark
+    public PhotoSearchIndex.SearchPage rareCombination() throws Exception {
+        return searchIndex.search("coffee bridge", "snow", "denver", null, 20);
+    }
+    
+    @Benchmark
+    public PhotoSearchIndex.SearchPage noMatch() throws Exception {
+        return searchIndex.search("sunset beach", "dog", "boston", null, 20);
+    }
+    
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+}
@@ -0,0 +1,117 @@
+package com.photoshare.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Heap-only stand-in for benchmarks: no I/O, so measurements isolate the
+ * service code on top. Conditional writes are atomic per blob.
+ */
+public class InMemoryStorageBackend implements StorageBackend {
+    
+    private final Map<String, ConcurrentSkipListMap<String, StoredBlob>> containers = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    
+    @Override
+    public StoredBlob read(String containerName, String blobName, String ifNoneMatch) {
+        StoredBlob blob = container(containerName).get(blobName);
+        if (blob != null && blob.getEtag().equals(ifNoneMatch)) {
+            return StoredBlob.NOT_MODIFIED;
+        }
+        return blob;
+    }
+    
+    @Override
+    public String write(String containerName, String blobName, byte[] data, String contentType) {
+        StoredBlob blob = new StoredBlob(data, nextEtag(), contentType);
+        container(containerName).put(blobName, blob);
+        return blob.getEtag();
+    }
+    
+    @Override
+    public String writeIfMatch(String containerName, String blobName, byte[] data, String contentType, String etag) {
+        StoredBlob blob = new StoredBlob(data, nextEtag(), contentType);
+        container(containerName).compute(blobName, (name, current) -> {
+            boolean matches = etag == null ? current == null : current != null && current.getEtag().equals(etag);
+            if (!matches) {
+                throw new PreconditionFailedException(containerName, blobName);
+            }
+            return blob;
+        });
+        return blob.getEtag();
+    }
+    
+    @Override
+    public String writeStream(String containerName, String blobName, InputStream data, long length, String contentType) {
+        try {
+            return write(containerName, blobName, data.readAllBytes(), contentType);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    @Override
+    public BlobAttributes attributes(String containerName, String blobName) {
+        StoredBlob blob = container(containerName).get(blobName);
+        return blob != null ? new BlobAttributes(blob.getData().length, blob.getEtag(), blob.getContentType()) : null;
+    }
+    
+    @Override
+    public BlobAttributes downloadToFile(String containerName, String blobName, Path target) {
+        StoredBlob blob = container(containerName).get(blobName);
+        if (blob == null) {
+            return null;
+        }
+        try {
+            Files.write(target, blob.getData());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new BlobAttributes(blob.getData().length, blob.getEtag(), blob.getContentType());
+    }
+    
+    @Override
+    public boolean delete(String containerName, String blobName) {
+        return container(containerName).remove(blobName) != null;
+    }
+    
+    @Override
+    public Iterable<String> list(String containerName, String prefix) {
+        ConcurrentSkipListMap<String, StoredBlob> blobs = container(containerName);
+        if (prefix == null) {
+            return List.copyOf(blobs.keySet());
+        }
+        return blobs.keySet().stream().filter(name -> name.startsWith(prefix)).toList();
+    }
+    
+    @Override
+    public String url(String containerName, String blobName) {
+        return "mem://" + containerName + "/" + blobName;
+    }
+    
+    @Override
+    public Readiness getReadiness() {
+        return Readiness.READY;
+    }
+    
+    @Override
+    public Map<String, String> getContainerStatus() {
+        return Map.of();
+    }
+    
+    private ConcurrentSkipListMap<String, StoredBlob> container(String containerName) {
+        return containers.computeIfAbsent(containerName, name -> new ConcurrentSkipListMap<>());
+    }
+    
+    private String nextEtag() {
+        return "\"" + Long.toHexString(version.incrementAndGet()) + "\"";
+    }
+}
@@ -0,0 +1,87 @@
+package com.photoshare.admission;
+
+import com.photoshare.security.AuthenticatedUser;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control for {@link RateLimited} handlers. A request is answered
+ * with 429 and Retry-After when its client's bucket is empty, or when the
+ * {@link LoadShedder} is shedding. Clients are identified by the verified
+ * token user where there is one, otherwise by remote address; the userId
+ * parameter is not trusted because it costs nothing to vary. Behind a proxy
+ * or the App Service front end the remote address is the client's, taken
+ * from X-Forwarded-For by Tomcat's remote IP valve
+ * ({@code server.forward-headers-strategy=native}); without it every
+ * anonymous client would share the proxy's bucket.
+ */
+public class AdmissionInterceptor implements HandlerInterceptor {
+    
+    private final RateLimiter rateLimiter;
+    private final LoadShedder loadShedder;
+    
+    public AdmissionInterceptor(RateLimiter rateLimiter, LoadShedder loadShedder) {
+        this.rateLimiter = rateLimiter;
+        this.loadShedder = loadShedder;
+    }
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        // An async redispatch was admitted on its first dispatch
+        if (request.getDispatcherType() == DispatcherType.ASYNC || !(handler instanceof HandlerMethod method)) {
+            return true;
+        }
+        RateLimited limited = method.getMethodAnnotation(RateLimited.class);
+        if (limited == null) {
+            return true;
+        }
+        
+        long waitNanos = rateLimiter.tryAcquire(limited.value(), client(request));
+        if (waitNanos > 0) {
+            reject(response, Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)),
+                    "Too many requests, please slow down");
+            return false;
+        }
+        if (loadShedder.shouldShed(limited.value())) {
+            reject(response, 1, "Server is busy, please retry");
+            return false;
+        }
+        return true;
+    }
+    
+    private static String client(HttpServletRequest request) {
+        Object user = request.getAttribute(AuthenticatedUser.REQUEST_ATTRIBUTE);
+        if (user instanceof AuthenticatedUser authenticated) {
+            return "user:" + authenticated.getUserId();
+        }
+        return "ip:" + withoutPort(request.getRemoteAddr());
+    }
+    
+    // Some front ends forward "address:port", which would give every connection its own bucket
+    private static String withoutPort(String address) {
+        if (address.startsWith("[")) {
+            int end = address.indexOf(']');
+            return end > 0 ? address.substring(1, end) : address;
+        }
+        int colon = address.indexOf(':');
+        return colon > 0 && colon == address.lastIndexOf(':') ? address.substring(0, colon) : address;
+    }
+    
+    private static void reject(HttpServletResponse response, long retryAfterSeconds, String message)
+            throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+}
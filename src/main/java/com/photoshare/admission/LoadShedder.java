@@ -0,0 +1,78 @@
+package com.photoshare.admission;
+
+import com.photoshare.metrics.StorageLoad;
+import com.photoshare.metrics.StorageMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns away rate-limited writes while storage is overloaded, before they
+ * add more storage calls. Overload is recent storage latency or in-flight
+ * calls relative to their thresholds. Past 1.0 the shed share grows with
+ * the overload: 1.5 sheds half. Some requests always get through, so the
+ * latency signal keeps updating and shedding stops once storage recovers.
+ */
+@Component
+public class LoadShedder {
+    
+    private static final double MAX_SHED_FRACTION = 0.9;
+    
+    @Autowired
+    private StorageMetrics storageMetrics;
+    
+    @Value("${photoshare.shedding.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${photoshare.shedding.latency-threshold-ms:250}")
+    private double latencyThresholdMillis;
+    
+    @Value("${photoshare.shedding.in-flight-threshold:192}")
+    private long inFlightThreshold;
+    
+    private final Map<String, LongAdder> shed = new ConcurrentHashMap<>();
+    
+    /** Decides whether to reject a request under the named limit now; counts it if so. */
+    public boolean shouldShed(String limitName) {
+        if (!enabled) {
+            return false;
+        }
+        double overload = overload();
+        if (overload <= 1) {
+            return false;
+        }
+        if (ThreadLocalRandom.current().nextDouble() >= Math.min(MAX_SHED_FRACTION, overload - 1)) {
+            return false;
+        }
+        shed.computeIfAbsent(limitName, name -> new LongAdder()).increment();
+        return true;
+    }
+    
+    private double overload() {
+        StorageLoad load = storageMetrics.load();
+        return Math.max(load.recentLatencyMillis() / latencyThresholdMillis,
+                (double) load.inFlight() / inFlightThreshold);
+    }
+    
+    public Map<String, Object> stats() {
+        StorageLoad load = storageMetrics.load();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("latencyThresholdMs", latencyThresholdMillis);
+        stats.put("inFlightThreshold", inFlightThreshold);
+        stats.put("recentLatencyMs", Math.round(load.recentLatencyMillis() * 100) / 100.0);
+        stats.put("inFlight", load.inFlight());
+        stats.put("overload", Math.round(overload() * 100) / 100.0);
+        Map<String, Object> byLimit = new TreeMap<>();
+        shed.forEach((name, count) -> byLimit.put(name, count.sum()));
+        stats.put("shed", byLimit);
+        return stats;
+    }
+}
@@ -0,0 +1,20 @@
+package com.photoshare.admission;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Puts a handler method under admission control: a per-client token bucket
+ * for the named limit, and load shedding while storage is overloaded.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RateLimited {
+    
+    /** Limit name, as configured in photoshare.ratelimit.per-minute and .burst. */
+    String value();
+}
@@ -0,0 +1,174 @@
+package com.photoshare.admission;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token buckets per client and limit, without locks. Each bucket is a single
+ * AtomicLong holding the time at which it will be full again (the GCRA form
+ * of a token bucket), updated by compare-and-set.
+ *
+ * A full bucket holds no information, so full buckets are swept once the
+ * table reaches its key limit. If every tracked client is still active, new
+ * clients share a fixed set of overflow buckets picked by hash. That is
+ * stricter for them, but memory stays bounded.
+ */
+@Component
+public class RateLimiter {
+    
+    private static final int OVERFLOW_BUCKETS = 4096;
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    
+    // Comma-separated name:value pairs; unlisted limits get the defaults
+    @Value("${photoshare.ratelimit.per-minute:}")
+    private String perMinute;
+    
+    @Value("${photoshare.ratelimit.burst:}")
+    private String burst;
+    
+    @Value("${photoshare.ratelimit.default-per-minute:60}")
+    private int defaultPerMinute;
+    
+    @Value("${photoshare.ratelimit.default-burst:10}")
+    private int defaultBurst;
+    
+    @Value("${photoshare.ratelimit.max-keys:50000}")
+    private int maxKeys;
+    
+    private final Map<String, Limit> limits = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong[] overflow = new AtomicLong[OVERFLOW_BUCKETS];
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final LongAdder overflowed = new LongAdder();
+    // Bucket times are relative to this, so a fresh bucket (0) is always full
+    private final long epochNanos = System.nanoTime();
+    private volatile long lastSweepNanos;
+    
+    @PostConstruct
+    public void init() {
+        for (int i = 0; i < overflow.length; i++) {
+            overflow[i] = new AtomicLong();
+        }
+        Map<String, Integer> bursts = parse(burst, "burst");
+        parse(perMinute, "per-minute").forEach((name, rate) ->
+                limits.put(name, new Limit(rate, bursts.getOrDefault(name, defaultBurst))));
+    }
+    
+    private static Map<String, Integer> parse(String value, String property) {
+        Map<String, Integer> parsed = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return parsed;
+        }
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid rate limit " + property + " '" + entry
+                        + "', expected name:value");
+            }
+            parsed.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return parsed;
+    }
+    
+    /**
+     * Takes one token from the client's bucket for the named limit.
+     *
+     * @return 0 if the request is admitted, otherwise nanoseconds until a token is available
+     */
+    public long tryAcquire(String limitName, String client) {
+        Limit limit = limits.computeIfAbsent(limitName, name -> new Limit(defaultPerMinute, defaultBurst));
+        long now = System.nanoTime() - epochNanos;
+        AtomicLong bucket = bucket(limitName + '|' + client, now);
+        while (true) {
+            long fullAt = bucket.get();
+            long next = Math.max(fullAt, now) + limit.intervalNanos;
+            long wait = next - now - limit.capacityNanos;
+            if (wait > 0) {
+                limit.rejected.increment();
+                return wait;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                limit.admitted.increment();
+                return 0;
+            }
+        }
+    }
+    
+    private AtomicLong bucket(String key, long now) {
+        AtomicLong bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.mappingCount() >= maxKeys) {
+            sweep(now);
+            if (buckets.mappingCount() >= maxKeys) {
+                overflowed.increment();
+                return overflow[(key.hashCode() & 0x7fffffff) % OVERFLOW_BUCKETS];
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new AtomicLong());
+    }
+    
+    private void sweep(long now) {
+        // One sweeper at a time, at most once a second; the others go to overflow meanwhile
+        if (now - lastSweepNanos < SWEEP_INTERVAL_NANOS || !sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // A caller still holding a removed bucket can get one extra token, which is harmless
+            buckets.values().removeIf(bucket -> bucket.get() <= now);
+            lastSweepNanos = now;
+        } finally {
+            sweeping.set(false);
+        }
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Object> byLimit = new TreeMap<>();
+        limits.forEach((name, limit) -> {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("perMinute", limit.perMinute);
+            entry.put("burst", limit.burst);
+            entry.put("admitted", limit.admitted.sum());
+            entry.put("rejected", limit.rejected.sum());
+            byLimit.put(name, entry);
+        });
+        stats.put("limits", byLimit);
+        stats.put("trackedClients", buckets.mappingCount());
+        stats.put("maxKeys", maxKeys);
+        stats.put("overflowed", overflowed.sum());
+        return stats;
+    }
+    
+    private static class Limit {
+        final int perMinute;
+        final int burst;
+        // One token is added every intervalNanos; a full bucket spans capacityNanos
+        final long intervalNanos;
+        final long capacityNanos;
+        final LongAdder admitted = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        
+        Limit(int perMinute, int burst) {
+            if (perMinute < 1 || burst < 1) {
+                throw new IllegalArgumentException("Rate limits need at least 1 per minute and a burst of 1");
+            }
+            this.perMinute = perMinute;
+            this.burst = burst;
+            this.intervalNanos = TimeUnit.MINUTES.toNanos(1) / perMinute;
+            this.capacityNanos = intervalNanos * burst;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.photoshare.config;
+
+import com.photoshare.admission.AdmissionInterceptor;
+import com.photoshare.admission.LoadShedder;
+import com.photoshare.admission.RateLimiter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@ConditionalOnProperty(name = "photoshare.ratelimit.enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionWebConfig implements WebMvcConfigurer {
+    
+    @Autowired
+    private RateLimiter rateLimiter;
+    
+    @Autowired
+    private LoadShedder loadShedder;
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // After the metrics interceptor, so rejected requests are still timed and counted
+        registry.addInterceptor(new AdmissionInterceptor(rateLimiter, loadShedder))
+                .addPathPatterns("/api/**")
+                .order(1);
+    }
+}
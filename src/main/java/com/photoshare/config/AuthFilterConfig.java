@@ -0,0 +1,25 @@
+package com.photoshare.config;
+
+import com.photoshare.security.TokenAuthenticationFilter;
+import com.photoshare.security.TokenService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Set;
+
+@Configuration
+@ConditionalOnProperty(name = "photoshare.auth.require-token", havingValue = "true", matchIfMissing = true)
+public class AuthFilterConfig {
+    
+    @Bean
+    public FilterRegistrationBean<TokenAuthenticationFilter> tokenAuthenticationFilter(TokenService tokenService) {
+        // Batch lookups are reads sent as POST
+        TokenAuthenticationFilter filter = new TokenAuthenticationFilter(tokenService, Set.of("/api/photos/batch-get"));
+        FilterRegistrationBean<TokenAuthenticationFilter> registration = new FilterRegistrationBean<>(filter);
+        // Covers /api/photos itself as well as everything below it
+        registration.addUrlPatterns("/api/photos/*");
+        return registration;
+    }
+}
@@ -0,0 +1,23 @@
+package com.photoshare.config;
+
+import com.azure.storage.blob.BlobServiceClient;
+import com.azure.storage.blob.BlobServiceClientBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "photoshare.storage.backend", havingValue = "azure", matchIfMissing = true)
+public class AzureBlobStorageConfig {
+    
+    @Value("${azure.storage.connection-string}")
+    private String connectionString;
+    
+    @Bean
+    public BlobServiceClient blobServiceClient() {
+        return new BlobServiceClientBuilder()
+                .connectionString(connectionString)
+                .buildClient();
+    }
+}
@@ -0,0 +1,20 @@
+package com.photoshare.config;
+
+import com.photoshare.metrics.EndpointMetrics;
+import com.photoshare.metrics.EndpointMetricsInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class MetricsWebConfig implements WebMvcConfigurer {
+    
+    @Autowired
+    private EndpointMetrics endpointMetrics;
+    
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new EndpointMetricsInterceptor(endpointMetrics)).addPathPatterns("/api/**");
+    }
+}
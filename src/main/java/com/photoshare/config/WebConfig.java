@@ -1,6 +1,7 @@
 package com.photoshare.config;
 
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -12,6 +13,8 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addMapping("/**")
                 .allowedOrigins("*")
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
-                .allowedHeaders("*");
+                .allowedHeaders("*")
+                // Headers the API sets for clients to read: feed cursor, validators, backoff
+                .exposedHeaders("X-Next-Cursor", HttpHeaders.ETAG, HttpHeaders.RETRY_AFTER);
     }
 }
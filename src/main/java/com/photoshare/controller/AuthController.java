@@ -0,0 +1,143 @@
+package com.photoshare.controller;
+
+import com.photoshare.admission.RateLimited;
+import com.photoshare.model.User;
+import com.photoshare.security.PasswordHasher;
+import com.photoshare.security.TokenService;
+import com.photoshare.service.BlobStorageService;
+import com.photoshare.service.ConcurrentUpdateException;
+import com.photoshare.storage.StorageBusyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/auth")
+public class AuthController {
+    
+    private static final Logger log = LoggerFactory.getLogger(AuthController.class);
+    
+    @Autowired
+    private BlobStorageService blobStorageService;
+    
+    @Autowired
+    private PasswordHasher passwordHasher;
+    
+    @Autowired
+    private TokenService tokenService;
+    
+    // Storage writes after hashing run here, not on the small BCrypt pool
+    @Autowired
+    private TaskExecutor applicationTaskExecutor;
+    
+    @RateLimited("signup")
+    @PostMapping("/signup")
+    public CompletableFuture<ResponseEntity<?>> signup(@RequestBody Map<String, String> request) {
+        try {
+            String username = request.get("username");
+            String password = request.get("password");
+            String role = request.get("role");
+            
+            if (username == null || password == null || role == null) {
+                return CompletableFuture.completedFuture(
+                        ResponseEntity.badRequest().body(Map.of("error", "All fields are required")));
+            }
+            
+            // Check if user exists
+            User existingUser = blobStorageService.getObject("users", username + ".json", User.class);
+            if (existingUser != null) {
+                return CompletableFuture.completedFuture(
+                        ResponseEntity.badRequest().body(Map.of("error", "Username already exists")));
+            }
+            
+            return passwordHasher.encode(password)
+                    .<ResponseEntity<?>>thenApplyAsync(hashedPassword -> {
+                        User user = new User(UUID.randomUUID().toString(), username, hashedPassword, role);
+                        try {
+                            // Create-only, so two concurrent signups cannot overwrite each other
+                            blobStorageService.saveObjectIfMatch("users", username + ".json", user, null);
+                        } catch (ConcurrentUpdateException e) {
+                            return ResponseEntity.badRequest().body(Map.of("error", "Username already exists"));
+                        } catch (Exception e) {
+                            throw new CompletionException(e);
+                        }
+                        return ResponseEntity.status(HttpStatus.CREATED).body(authResponse(user));
+                    }, applicationTaskExecutor)
+                    .exceptionally(e -> failure(e, "Signup failed"));
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(failure(e, "Signup failed"));
+        }
+    }
+    
+    @PostMapping("/login")
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody Map<String, String> request) {
+        try {
+            String username = request.get("username");
+            String password = request.get("password");
+            String role = request.get("role");
+            
+            if (username == null || password == null) {
+                return CompletableFuture.completedFuture(
+                        ResponseEntity.badRequest().body(Map.of("error", "Credentials required")));
+            }
+            
+            // Get user
+            User user = blobStorageService.getObject("users", username + ".json", User.class);
+            if (user == null || !user.getRole().equals(role)) {
+                return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .body(Map.of("error", "Invalid credentials")));
+            }
+            
+            // Verify password
+            return passwordHasher.matches(password, user.getPassword())
+                    .<ResponseEntity<?>>thenApply(matches -> matches
+                            ? ResponseEntity.ok(authResponse(user))
+                            : ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                                    .body(Map.of("error", "Invalid credentials")))
+                    .exceptionally(e -> failure(e, "Login failed"));
+        } catch (Exception e) {
+            return CompletableFuture.completedFuture(failure(e, "Login failed"));
+        }
+    }
+    
+    private Map<String, Object> authResponse(User user) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("token", tokenService.issue(user));
+        response.put("expiresIn", tokenService.getTokenTtl().toSeconds());
+        response.put("user", Map.of(
+            "id", user.getId(),
+            "username", user.getUsername(),
+            "role", user.getRole()
+        ));
+        return response;
+    }
+    
+    private static ResponseEntity<?> failure(Throwable e, String message) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof RejectedExecutionException) {
+            // The hashing queue is full; ask the client to back off briefly
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", "Too many sign-in attempts, try again shortly"));
+        }
+        if (cause instanceof StorageBusyException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(Map.of("error", "Storage is busy, please retry"));
+        }
+        log.error(message, cause);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", message));
+    }
+}
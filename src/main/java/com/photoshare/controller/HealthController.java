@@ -1,5 +1,11 @@
 package com.photoshare.controller;
 
+import com.photoshare.service.RenditionService;
+import com.photoshare.storage.ContainerBulkheads;
+import com.photoshare.storage.StorageBackend;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 import java.util.HashMap;
@@ -8,6 +14,15 @@ import java.util.Map;
 @RestController
 public class HealthController {
     
+    @Autowired
+    private StorageBackend storageBackend;
+    
+    @Autowired
+    private RenditionService renditionService;
+    
+    @Autowired
+    private ContainerBulkheads containerBulkheads;
+    
     @GetMapping("/")
     public Map<String, String> home() {
         Map<String, String> response = new HashMap<>();
@@ -18,10 +33,16 @@ public class HealthController {
     }
     
     @GetMapping("/health")
-    public Map<String, String> health() {
-        Map<String, String> response = new HashMap<>();
-        response.put("status", "OK");
+    public ResponseEntity<Map<String, Object>> health() {
+        StorageBackend.Readiness readiness = storageBackend.getReadiness();
+        boolean ready = readiness == StorageBackend.Readiness.READY;
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("status", ready ? "OK" : readiness.name());
+        response.put("storage", storageBackend.getContainerStatus());
+        response.put("renditions", renditionService.stats());
+        response.put("bulkheads", containerBulkheads.stats());
         response.put("timestamp", java.time.LocalDateTime.now().toString());
-        return response;
+        return ResponseEntity.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(response);
     }
 }
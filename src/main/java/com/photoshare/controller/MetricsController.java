@@ -0,0 +1,98 @@
+package com.photoshare.controller;
+
+import com.photoshare.admission.LoadShedder;
+import com.photoshare.admission.RateLimiter;
+import com.photoshare.metrics.EndpointMetrics;
+import com.photoshare.metrics.StorageMetrics;
+import com.photoshare.security.PasswordHasher;
+import com.photoshare.service.BlobStorageService;
+import com.photoshare.service.EngagementAggregator;
+import com.photoshare.service.FeedManifest;
+import com.photoshare.service.ImageDiskCache;
+import com.photoshare.service.ImageReferenceIndex;
+import com.photoshare.service.PhotoRankings;
+import com.photoshare.service.PhotoSearchIndex;
+import com.photoshare.service.RenditionService;
+import com.photoshare.storage.ContainerBulkheads;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Operational metrics: storage calls and endpoint timings, plus the counters
+ * the caches, pools and indexes already keep. Latency figures are
+ * cumulative since startup.
+ */
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+    
+    @Autowired
+    private StorageMetrics storageMetrics;
+    
+    @Autowired
+    private EndpointMetrics endpointMetrics;
+    
+    @Autowired
+    private ContainerBulkheads containerBulkheads;
+    
+    @Autowired
+    private BlobStorageService blobStorageService;
+    
+    @Autowired
+    private EngagementAggregator engagementAggregator;
+    
+    @Autowired
+    private RenditionService renditionService;
+    
+    @Autowired
+    private ImageDiskCache imageDiskCache;
+    
+    @Autowired
+    private PhotoSearchIndex photoSearchIndex;
+    
+    @Autowired
+    private PasswordHasher passwordHasher;
+    
+    @Autowired
+    private FeedManifest feedManifest;
+    
+    @Autowired
+    private ImageReferenceIndex imageReferenceIndex;
+    
+    @Autowired
+    private PhotoRankings photoRankings;
+    
+    @Autowired
+    private RateLimiter rateLimiter;
+    
+    @Autowired
+    private LoadShedder loadShedder;
+    
+    @GetMapping
+    public Map<String, Object> metrics() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("storage", storageMetrics.stats());
+        response.put("endpoints", endpointMetrics.stats());
+        response.put("bulkheads", containerBulkheads.stats());
+        response.put("rateLimits", rateLimiter.stats());
+        response.put("loadShedding", loadShedder.stats());
+        response.put("cache", blobStorageService.getCacheStats());
+        response.put("concurrency", blobStorageService.getConcurrencyStats());
+        response.put("engagement", engagementAggregator.stats());
+        response.put("renditions", renditionService.stats());
+        response.put("imageCache", imageDiskCache.stats());
+        response.put("imageUploads", blobStorageService.getImageUploadStats());
+        response.put("imageReferences", imageReferenceIndex.stats());
+        response.put("search", photoSearchIndex.stats());
+        response.put("rankings", photoRankings.stats());
+        response.put("manifest", feedManifest.stats());
+        response.put("passwordHashing", passwordHasher.stats());
+        response.put("timestamp", java.time.LocalDateTime.now().toString());
+        return response;
+    }
+}
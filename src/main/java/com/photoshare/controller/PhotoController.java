@@ -0,0 +1,728 @@
+package com.photoshare.controller;
+
+import com.photoshare.admission.RateLimited;
+import com.photoshare.model.Comment;
+import com.photoshare.model.Photo;
+import com.photoshare.security.AuthenticatedUser;
+import com.photoshare.service.BatchFetchResult;
+import com.photoshare.service.BlobStorageService;
+import com.photoshare.service.CommentStore;
+import com.photoshare.service.ConcurrentUpdateException;
+import com.photoshare.service.EngagementAggregator;
+import com.photoshare.service.ImageReferenceIndex;
+import com.photoshare.service.PhotoFeedIndex;
+import com.photoshare.service.PhotoRankings;
+import com.photoshare.service.PhotoSearchIndex;
+import com.photoshare.service.RenditionService;
+import com.photoshare.service.StoredImage;
+import com.photoshare.storage.StorageBusyException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
+
+@RestController
+@RequestMapping("/api/photos")
+public class PhotoController {
+    
+    private static final Logger log = LoggerFactory.getLogger(PhotoController.class);
+    
+    @Autowired
+    private BlobStorageService blobStorageService;
+    
+    @Autowired
+    private PhotoFeedIndex photoFeedIndex;
+    
+    @Autowired
+    private EngagementAggregator engagementAggregator;
+    
+    @Autowired
+    private CommentStore commentStore;
+    
+    @Autowired
+    private RenditionService renditionService;
+    
+    @Autowired
+    private PhotoSearchIndex photoSearchIndex;
+    
+    @Autowired
+    private PhotoFeedWriter photoFeedWriter;
+    
+    @Autowired
+    private ImageReferenceIndex imageReferenceIndex;
+    
+    @Autowired
+    private PhotoRankings photoRankings;
+    
+    private static final int MAX_PAGE_SIZE = 100;
+    
+    @Value("${photoshare.batch.max-items:50}")
+    private int maxBatchSize;
+    
+    @Value("${photoshare.batch.get-concurrency:16}")
+    private int batchGetConcurrency;
+    
+    @Value("${photoshare.batch.upload-concurrency:4}")
+    private int batchUploadConcurrency;
+    
+    @RateLimited("upload")
+    @PostMapping
+    public ResponseEntity<?> uploadPhoto(
+            @RequestParam(required = false) MultipartFile image,
+            @RequestParam String title,
+            @RequestParam(required = false) String caption,
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) String tags,
+            @RequestParam(required = false) String imageUrl,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String username,
+            @RequestAttribute(name = AuthenticatedUser.REQUEST_ATTRIBUTE, required = false) AuthenticatedUser caller) {
+        try {
+            String creatorId = actingUserId(caller, userId);
+            String creatorName = caller != null ? caller.getUsername() : username;
+            if (creatorId == null || creatorName == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "userId and username are required"));
+            }
+            Photo photo = createPhoto(image, imageUrl, title, caption, location, tags, creatorId, creatorName);
+            return ResponseEntity.status(HttpStatus.CREATED).body(photo);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (StorageBusyException e) {
+            return storageBusy();
+        } catch (Exception e) {
+            log.error("Upload failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Upload failed"));
+        }
+    }
+    
+    /**
+     * Uploads several images in one request. The images are stored concurrently,
+     * each becoming its own photo with the shared caption, location and tags;
+     * titles are matched to images by position and default to the file name.
+     * Every item reports its own status, so one bad file does not fail the rest.
+     */
+    @RateLimited("batch-upload")
+    @PostMapping("/batch")
+    public ResponseEntity<?> uploadPhotos(
+            @RequestParam List<MultipartFile> images,
+            @RequestParam(required = false) List<String> titles,
+            @RequestParam(required = false) String caption,
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) String tags,
+            @RequestParam(required = false) String userId,
+            @RequestParam(required = false) String username,
+            @RequestAttribute(name = AuthenticatedUser.REQUEST_ATTRIBUTE, required = false) AuthenticatedUser caller) {
+        try {
+            String creatorId = actingUserId(caller, userId);
+            String creatorName = caller != null ? caller.getUsername() : username;
+            if (creatorId == null || creatorName == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "userId and username are required"));
+            }
+            if (images.isEmpty() || images.size() > maxBatchSize) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("error", "Between 1 and " + maxBatchSize + " images are required"));
+            }
+            
+            List<Callable<Photo>> uploads = new ArrayList<>(images.size());
+            for (int i = 0; i < images.size(); i++) {
+                MultipartFile image = images.get(i);
+                String title = titles != null && i < titles.size() && !titles.get(i).isBlank()
+                        ? titles.get(i)
+                        : defaultTitle(image);
+                uploads.add(() -> createPhoto(image, null, title, caption, location, tags, creatorId, creatorName));
+            }
+            List<Future<Photo>> results = blobStorageService.submitAll(uploads, batchUploadConcurrency);
+            
+            List<Map<String, Object>> items = new ArrayList<>(images.size());
+            int created = 0;
+            for (int i = 0; i < images.size(); i++) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("index", i);
+                item.put("filename", images.get(i).getOriginalFilename());
+                try {
+                    item.put("status", HttpStatus.CREATED.value());
+                    item.put("photo", results.get(i).get());
+                    created++;
+                } catch (ExecutionException e) {
+                    putItemError(item, e.getCause(), "Upload failed");
+                }
+                items.add(item);
+            }
+            return ResponseEntity.ok(Map.of("items", items, "created", created, "failed", items.size() - created));
+        } catch (Exception e) {
+            log.error("Batch upload failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Upload failed"));
+        }
+    }
+    
+    private Photo createPhoto(MultipartFile image, String imageUrl, String title, String caption, String location,
+                              String tags, String userId, String username) throws Exception {
+        if (title == null || title.isEmpty()) {
+            throw new IllegalArgumentException("Title is required");
+        }
+        
+        String url;
+        StoredImage storedImage = null;
+        if (image != null && !image.isEmpty()) {
+            storedImage = blobStorageService.uploadImage(image);
+            url = storedImage.getUrl();
+        } else if (imageUrl != null && !imageUrl.isEmpty()) {
+            url = imageUrl;
+        } else {
+            throw new IllegalArgumentException("Image is required");
+        }
+        
+        Photo photo = new Photo();
+        photo.setId(UUID.randomUUID().toString());
+        Map<String, String> sharedRenditions = null;
+        if (storedImage != null) {
+            // Referenced before the photo exists, so the image is never unreferenced while in use
+            List<String> sharing = imageReferenceIndex.addReference(storedImage.getBlobName(), photo.getId());
+            if (storedImage.isExisting()) {
+                sharedRenditions = existingRenditions(sharing);
+            }
+        }
+        photo.setUrl(url);
+        photo.setTitle(title);
+        photo.setCaption(caption != null ? caption : "");
+        photo.setLocation(location != null ? location : "");
+        photo.setTags(tags != null ? tags : "");
+        photo.setCreatorId(userId);
+        photo.setCreatorName(username);
+        if (sharedRenditions != null) {
+            photo.setRenditions(new LinkedHashMap<>(sharedRenditions));
+        }
+        
+        blobStorageService.saveObject("photos", photo.getId() + ".json", photo);
+        photoFeedIndex.put(photo);
+        
+        // Thumbnails are produced in the background and added to the photo when ready
+        if (storedImage != null && sharedRenditions == null) {
+            renditionService.submit(photo.getId(), storedImage.getBlobName());
+        }
+        return photo;
+    }
+    
+    // Renditions of an image already stored for another photo, or null if none are ready yet
+    private Map<String, String> existingRenditions(List<String> photoIds) {
+        for (String photoId : photoIds) {
+            Photo other = photoFeedIndex.get(photoId);
+            if (other != null && !other.getRenditions().isEmpty()) {
+                return other.getRenditions();
+            }
+        }
+        return null;
+    }
+    
+    private void releaseImage(Photo photo) {
+        String imageBlobName = ImageReferenceIndex.imageBlobName(photo.getUrl());
+        if (imageBlobName == null) {
+            return;
+        }
+        try {
+            imageReferenceIndex.removeReference(imageBlobName, photo.getId());
+        } catch (Exception e) {
+            // The photo is gone either way; a stale reference only keeps the image counted as used
+            log.warn("Failed to release image {} for deleted photo {}", imageBlobName, photo.getId(), e);
+        }
+    }
+    
+    private static String defaultTitle(MultipartFile image) {
+        String name = image.getOriginalFilename();
+        if (name == null || name.isBlank()) {
+            return "Untitled";
+        }
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+    
+    /**
+     * The feed, newest first: the whole feed as a JSON array without paging
+     * parameters, otherwise {photos, nextCursor}. Photos are serialized straight
+     * to the response, or one per line with {@code Accept: application/x-ndjson}.
+     * Unchanged feeds are answered with 304 via ETag or Last-Modified.
+     */
+    @GetMapping
+    public ResponseEntity<?> getAllPhotos(
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String userId,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest webRequest,
+            HttpServletResponse response) throws IOException {
+        boolean paged = limit != null || cursor != null;
+        List<Photo> photos;
+        String nextCursor = null;
+        try {
+            photoFeedIndex.ensureLoaded();
+            
+            // Without paging parameters keep returning the whole feed (newest first)
+            if (!paged) {
+                photos = photoFeedIndex.all();
+            } else {
+                int pageSize = limit != null ? limit : 20;
+                if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                    return ResponseEntity.badRequest().body(Map.of("error", "Limit must be 1-" + MAX_PAGE_SIZE));
+                }
+                PhotoFeedIndex.FeedPage page = photoFeedIndex.page(cursor, pageSize);
+                photos = page.getPhotos();
+                nextCursor = page.getNextCursor();
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (StorageBusyException e) {
+            return storageBusy();
+        } catch (Exception e) {
+            log.error("Failed to fetch photos", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to fetch photos"));
+        }
+        
+        boolean ndjson = PhotoFeedWriter.wantsNdjson(accept);
+        UnaryOperator<Photo> view = photo -> toView(photo, userId);
+        String etag = PhotoFeedWriter.etag(photos, view, (ndjson ? "ndjson:" : "json:") + paged + ":" + nextCursor);
+        // Removals leave no trace on the remaining photos, so the feed's own clock is used
+        long lastModified = Math.max(photoFeedIndex.lastModifiedMillis(), engagementAggregator.lastRecordedMillis());
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return null;
+        }
+        photoFeedWriter.write(response, photos, nextCursor, paged, ndjson, view);
+        return null;
+    }
+    
+    @GetMapping("/search")
+    public ResponseEntity<?> searchPhotos(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String tag,
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String userId) {
+        try {
+            int pageSize = limit != null ? limit : 20;
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Limit must be 1-" + MAX_PAGE_SIZE));
+            }
+            
+            PhotoSearchIndex.SearchPage page = photoSearchIndex.search(q, tag, location, cursor, pageSize);
+            Map<String, Object> response = new HashMap<>();
+            response.put("photos", toViews(page.getPhotos(), userId));
+            response.put("nextCursor", page.getNextCursor());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (StorageBusyException e) {
+            return storageBusy();
+        } catch (Exception e) {
+            log.error("Search failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Search failed"));
+        }
+    }
+    
+    /**
+     * Leaderboard of photos by likes, rating or trending score within one of
+     * the configured windows (photoshare.rankings.windows), read from the
+     * incrementally maintained rankings rather than computed from the feed.
+     */
+    @GetMapping("/top")
+    public ResponseEntity<?> topPhotos(
+            @RequestParam(defaultValue = "trending") String by,
+            @RequestParam(required = false) String window,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String userId) {
+        try {
+            int pageSize = limit != null ? limit : 20;
+            if (pageSize < 1 || pageSize > photoRankings.getSize()) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("error", "Limit must be 1-" + photoRankings.getSize()));
+            }
+            PhotoRankings.By order = PhotoRankings.By.parse(by);
+            String resolvedWindow = photoRankings.resolveWindow(window);
+            photoFeedIndex.ensureLoaded();
+            
+            List<Map<String, Object>> items = new ArrayList<>(pageSize);
+            for (PhotoRankings.Ranked ranked : photoRankings.top(order, resolvedWindow, pageSize)) {
+                Photo photo = photoFeedIndex.get(ranked.getPhotoId());
+                if (photo == null) {
+                    continue;
+                }
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("score", Math.round(ranked.getScore() * 1000) / 1000.0);
+                item.put("photo", toView(photo, userId));
+                items.add(item);
+            }
+            
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("by", order.name().toLowerCase(Locale.ROOT));
+            response.put("window", resolvedWindow);
+            response.put("items", items);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (StorageBusyException e) {
+            return storageBusy();
+        } catch (Exception e) {
+            log.error("Failed to fetch top photos", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to fetch top photos"));
+        }
+    }
+    
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getPhoto(@PathVariable String id, @RequestParam(required = false) String userId) {
+        try {
+            Photo photo = blobStorageService.getObject("photos", id + ".json", Photo.class);
+            if (photo == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Photo not found"));
+            }
+            Photo view = toView(photo, userId);
+            // Returned validators let Spring answer a matching conditional GET with 304
+            return ResponseEntity.ok()
+                    .eTag(PhotoFeedWriter.etag(List.of(view), UnaryOperator.identity(), "photo"))
+                    .lastModified(Math.max(PhotoFeedWriter.lastModifiedMillis(photo),
+                            engagementAggregator.lastRecordedMillis()))
+                    .body(view);
+        } catch (StorageBusyException e) {
+            return storageBusy();
+        } catch (Exception e) {
+            log.error("Failed to fetch photo", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to fetch photo"));
+        }
+    }
+    
+    /**
+     * Fetches up to {@code maxBatchSize} photos by id in one request, reading
+     * them concurrently. Items come back in request order, each with its own
+     * status: 200 with the photo, 404, or 503/500 with an error.
+     */
+    @PostMapping("/batch-get")
+    public ResponseEntity<?> getPhotos(@RequestBody Map<String, List<String>> request,
+                                       @RequestParam(required = false) String userId) {
+        try {
+            List<String> ids = request.get("ids");
+            if (ids == null || ids.isEmpty() || ids.size() > maxBatchSize) {
+                return ResponseEntity.badRequest()
+                        .body(Map.of("error", "Between 1 and " + maxBatchSize + " ids are required"));
+            }
+            
+            List<String> blobNames = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                blobNames.add(id + ".json");
+            }
+            BatchFetchResult<Photo> result = blobStorageService.getObjects("photos", blobNames, Photo.class,
+                    batchGetConcurrency);
+            
+            List<Map<String, Object>> items = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("id", id);
+                Throwable failure = result.getFailures().get(id + ".json");
+                Photo photo = result.getObjects().get(id + ".json");
+                if (failure != null) {
+                    putItemError(item, failure, "Failed to fetch photo");
+                } else if (photo == null) {
+                    item.put("status", HttpStatus.NOT_FOUND.value());
+                    item.put("error", "Photo not found");
+                } else {
+                    item.put("status", HttpStatus.OK.value());
+                    item.put("photo", toView(photo, userId));
+                }
+                items.add(item);
+            }
+            return ResponseEntity.ok(Map.of("items", items));
+        } catch (StorageBusyException e) {
+            return storageBusy();
+        } catch (Exception e) {
+            log.error("Failed to fetch photos", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to fetch photos"));
+        }
+    }
+    
+    @PutMapping("/{id}")
+    public ResponseEntity<?> updatePhoto(
+            @PathVariable String id,
+            @RequestBody Photo updatedPhoto,
+            @RequestParam(required = false) String userId,
+            @RequestAttribute(name = AuthenticatedUser.REQUEST_ATTRIBUTE, required = false) AuthenticatedUser caller) {
+        try {
+            String editorId = actingUserId(caller, userId);
+            if (editorId == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "userId is required"));
+            }
+            
+            Photo photo = blobStorageService.updateObject("photos", id + ".json", Photo.class, current -> {
+                // Someone else's photo is left untouched and answered with 403 below
+                if (!editorId.equals(current.getCreatorId())) {
+                    return false;
+                }
+                current.setTitle(updatedPhoto.getTitle());
+                current.setCaption(updatedPhoto.getCaption());
+                current.setLocation(updatedPhoto.getLocation());
+                current.setTags(updatedPhoto.getTags());
+                current.setUpdatedAt(LocalDateTime.now());
+                return true;
+            });
+            if (photo == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Photo not found"));
+            }
+            if (!editorId.equals(photo.getCreatorId())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "Not authorized"));
+            }
+            
+            photoFeedIndex.put(photo);
+            return ResponseEntity.ok(toView(photo, null));
+        } catch (ConcurrentUpdateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Photo is being updated, please retry"));
+        } catch (StorageBusyException e) {
+            return storageBusy();
+        } catch (Exception e) {
+            log.error("Update failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Update failed"));
+        }
+    }
+    
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deletePhoto(
+            @PathVariable String id,
+            @RequestParam(required = false) String userId,
+            @RequestAttribute(name = AuthenticatedUser.REQUEST_ATTRIBUTE, required = false) AuthenticatedUser caller) {
+        try {
+            String requesterId = actingUserId(caller, userId);
+            if (requesterId == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "userId is required"));
+            }
+            
+            Photo photo = blobStorageService.getObject("photos", id + ".json", Photo.class);
+            if (photo == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Photo not found"));
+            }
+            
+            if (!requesterId.equals(photo.getCreatorId())) {
+                return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                        .body(Map.of("error", "Not authorized"));
+            }
+            
+            blobStorageService.deleteObject("photos", id + ".json");
+            photoFeedIndex.remove(id);
+            engagementAggregator.discard(id);
+            commentStore.deleteComments(id);
+            releaseImage(photo);
+            return ResponseEntity.ok(Map.of("message", "Deleted successfully"));
+        } catch (StorageBusyException e) {
+            return storageBusy();
+        } catch (Exception e) {
+            log.error("Delete failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Delete failed"));
+        }
+    }
+    
+    @RateLimited("like")
+    @PostMapping("/{id}/like")
+    public ResponseEntity<?> likePhoto(
+            @PathVariable String id,
+            @RequestParam(required = false) String userId,
+            @RequestAttribute(name = AuthenticatedUser.REQUEST_ATTRIBUTE, required = false) AuthenticatedUser caller) {
+        try {
+            String likerId = actingUserId(caller, userId);
+            if (likerId == null) {
+                return ResponseEntity.badRequest().body(Map.of("error", "userId is required"));
+            }
+            
+            Photo photo = blobStorageService.getObject("photos", id + ".json", Photo.class);
+            if (photo == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Photo not found"));
+            }
+            
+            // Likes are batched and written back by the engagement aggregator
+            boolean liked = !photo.getLikedBy().contains(likerId) && engagementAggregator.recordLike(id, likerId);
+            
+            Photo view = toView(photo, likerId);
+            if (liked) {
+                photoRankings.recordLike(view);
+            }
+            return ResponseEntity.ok(view);
+        } catch (StorageBusyException e) {
+            return storageBusy();
+        } catch (Exception e) {
+            log.error("Like failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Like failed"));
+        }
+    }
+    
+    @RateLimited("comment")
+    @PostMapping("/{id}/comment")
+    public ResponseEntity<?> addComment(
+            @PathVariable String id,
+            @RequestBody Map<String, String> request,
+            @RequestAttribute(name = AuthenticatedUser.REQUEST_ATTRIBUTE, required = false) AuthenticatedUser caller) {
+        try {
+            String text = request.get("text");
+            // Comments are attributed to the token's user; the body only names the author without one
+            String userId = caller != null ? caller.getUserId() : request.get("userId");
+            String username = caller != null ? caller.getUsername() : request.get("username");
+            
+            if (text == null || text.isEmpty()) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Comment text required"));
+            }
+            
+            Comment comment = new Comment(UUID.randomUUID().toString(), userId, username, text);
+            Photo photo = commentStore.addComment(id, comment);
+            if (photo == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Photo not found"));
+            }
+            
+            photoFeedIndex.put(photo);
+            photoRankings.recordComment(photo);
+            return ResponseEntity.ok(comment);
+        } catch (ConcurrentUpdateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Photo is being updated, please retry"));
+        } catch (StorageBusyException e) {
+            return storageBusy();
+        } catch (Exception e) {
+            log.error("Comment failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Comment failed"));
+        }
+    }
+    
+    @GetMapping("/{id}/comments")
+    public ResponseEntity<?> getComments(
+            @PathVariable String id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        try {
+            int pageSize = limit != null ? limit : 20;
+            if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Limit must be 1-" + MAX_PAGE_SIZE));
+            }
+            
+            Photo photo = blobStorageService.getObject("photos", id + ".json", Photo.class);
+            if (photo == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Photo not found"));
+            }
+            
+            CommentStore.CommentPage page = commentStore.getComments(photo, cursor, pageSize);
+            Map<String, Object> response = new HashMap<>();
+            response.put("comments", page.getComments());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("total", page.getTotal());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (StorageBusyException e) {
+            return storageBusy();
+        } catch (Exception e) {
+            log.error("Failed to fetch comments", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to fetch comments"));
+        }
+    }
+    
+    @RateLimited("rate")
+    @PostMapping("/{id}/rate")
+    public ResponseEntity<?> ratePhoto(@PathVariable String id, @RequestBody Map<String, Integer> request) {
+        try {
+            Integer rating = request.get("rating");
+            if (rating == null || rating < 1 || rating > 5) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Rating must be 1-5"));
+            }
+            
+            Photo photo = blobStorageService.getObject("photos", id + ".json", Photo.class);
+            if (photo == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Photo not found"));
+            }
+            
+            // Ratings are batched and written back by the engagement aggregator
+            engagementAggregator.recordRating(id, rating);
+            Photo view = toView(photo, null);
+            photoRankings.recordRating(view);
+            return ResponseEntity.ok(view);
+        } catch (StorageBusyException e) {
+            return storageBusy();
+        } catch (Exception e) {
+            log.error("Rating failed", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Rating failed"));
+        }
+    }
+    
+    // Response view: pending likes/ratings applied, plus likedByMe when the caller is known
+    private Photo toView(Photo photo, String userId) {
+        Photo view = engagementAggregator.applyPending(photo);
+        if (userId != null) {
+            if (view == photo) {
+                view = new Photo(photo);
+            }
+            view.setLikedByMe(photo.getLikedBy().contains(userId)
+                    || engagementAggregator.hasPendingLike(photo.getId(), userId));
+        }
+        return view;
+    }
+    
+    // The token's user when the auth filter ran; otherwise the id the caller supplied
+    private static String actingUserId(AuthenticatedUser caller, String userId) {
+        return caller != null ? caller.getUserId() : userId;
+    }
+    
+    private List<Photo> toViews(List<Photo> photos, String userId) {
+        List<Photo> views = new ArrayList<>(photos.size());
+        for (Photo photo : photos) {
+            views.add(toView(photo, userId));
+        }
+        return views;
+    }
+    
+    private static void putItemError(Map<String, Object> item, Throwable cause, String message) {
+        if (cause instanceof IllegalArgumentException) {
+            item.put("status", HttpStatus.BAD_REQUEST.value());
+            item.put("error", cause.getMessage());
+        } else if (cause instanceof StorageBusyException) {
+            item.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+            item.put("error", "Storage is busy, please retry");
+        } else {
+            log.error(message, cause);
+            item.put("status", HttpStatus.INTERNAL_SERVER_ERROR.value());
+            item.put("error", message);
+        }
+    }
+    
+    private static ResponseEntity<?> storageBusy() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", "Storage is busy, please retry"));
+    }
+}
@@ -0,0 +1,148 @@
+package com.photoshare.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.photoshare.model.Photo;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Writes photo lists to the response one view at a time, so a feed is sent
+ * while it is being serialized instead of being built up in memory first.
+ * Also derives the validators (ETag, Last-Modified) that let unchanged feeds
+ * and photos be answered with 304.
+ */
+@Component
+class PhotoFeedWriter {
+    
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private ObjectWriter photoWriter;
+    
+    @PostConstruct
+    void init() {
+        // The servlet stream buffers and chunks on its own; flushing per photo would defeat that
+        photoWriter = objectMapper.writerFor(Photo.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+    
+    /** True when the client asked for newline-delimited JSON rather than a single document. */
+    static boolean wantsNdjson(String accept) {
+        if (accept == null || accept.isEmpty()) {
+            return false;
+        }
+        try {
+            for (MediaType type : MediaType.parseMediaTypes(accept)) {
+                if (MediaType.APPLICATION_NDJSON.equalsTypeAndSubtype(type)) {
+                    return true;
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            // Unparseable Accept headers get the default JSON response
+        }
+        return false;
+    }
+    
+    /**
+     * Streams the photos as a JSON array, or as {photos, nextCursor} when
+     * {@code paged}. NDJSON puts one photo per line and the cursor in a header.
+     */
+    void write(HttpServletResponse response, List<Photo> photos, String nextCursor, boolean paged,
+               boolean ndjson, UnaryOperator<Photo> view) throws IOException {
+        if (ndjson) {
+            response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+            if (nextCursor != null) {
+                response.setHeader(NEXT_CURSOR_HEADER, nextCursor);
+            }
+        } else {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        }
+        
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(
+                StreamUtils.nonClosing(response.getOutputStream()))) {
+            if (ndjson) {
+                generator.setRootValueSeparator(null);
+                for (Photo photo : photos) {
+                    photoWriter.writeValue(generator, view.apply(photo));
+                    generator.writeRaw('\n');
+                }
+                return;
+            }
+            
+            if (paged) {
+                generator.writeStartObject();
+                generator.writeFieldName("photos");
+            }
+            generator.writeStartArray();
+            for (Photo photo : photos) {
+                photoWriter.writeValue(generator, view.apply(photo));
+            }
+            generator.writeEndArray();
+            if (paged) {
+                generator.writeStringField("nextCursor", nextCursor);
+                generator.writeEndObject();
+            }
+        }
+    }
+    
+    /**
+     * Weak ETag over the version of every view: id, last stored change and
+     * the counters that pending likes and ratings move. {@code variant}
+     * separates representations of the same photos (format, cursor).
+     */
+    static String etag(List<Photo> photos, UnaryOperator<Photo> view, String variant) {
+        long hash = mix(FNV_OFFSET, variant);
+        for (Photo photo : photos) {
+            Photo v = view.apply(photo);
+            hash = mix(hash, v.getId());
+            hash = mix(hash, lastModifiedMillis(v));
+            hash = mix(hash, v.getLikes());
+            hash = mix(hash, v.getRatingCount());
+            hash = mix(hash, v.getCommentCount());
+            hash = mix(hash, v.getLikedByMe() == null ? 0 : v.getLikedByMe() ? 1 : 2);
+        }
+        return "W/\"" + Long.toHexString(hash) + "\"";
+    }
+    
+    /** When the stored photo last changed; photos saved before updatedAt existed fall back to upload time. */
+    static long lastModifiedMillis(Photo photo) {
+        LocalDateTime modified = photo.getUpdatedAt() != null ? photo.getUpdatedAt() : photo.getUploadedAt();
+        return modified != null ? modified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0;
+    }
+    
+    private static long mix(long hash, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+            }
+        }
+        // Terminator so adjacent fields cannot run into each other
+        return (hash ^ 0xff) * FNV_PRIME;
+    }
+    
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ (value & 0xff)) * FNV_PRIME;
+            value >>>= 8;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,25 @@
+package com.photoshare.controller;
+
+import com.photoshare.storage.StorageBusyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * Answers 503 for a full storage bulkhead on handlers that let exceptions
+ * propagate (image serving); the JSON controllers map it themselves.
+ */
+@RestControllerAdvice
+public class StorageBusyAdvice {
+    
+    @ExceptionHandler(StorageBusyException.class)
+    public ResponseEntity<?> storageBusy(StorageBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", "Storage is busy, please retry"));
+    }
+}
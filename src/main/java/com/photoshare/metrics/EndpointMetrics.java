@@ -0,0 +1,49 @@
+package com.photoshare.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request timings keyed by method and route pattern, e.g. "GET /api/photos/{id}".
+ */
+@Component
+public class EndpointMetrics {
+    
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    
+    public void record(String endpoint, long elapsedNanos, int status) {
+        endpoints.computeIfAbsent(endpoint, key -> new Endpoint()).record(elapsedNanos, status);
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new TreeMap<>();
+        endpoints.forEach((key, endpoint) -> stats.put(key, endpoint.snapshot()));
+        return stats;
+    }
+    
+    private static class Endpoint {
+        final LatencyHistogram latency = new LatencyHistogram();
+        // Indexed by status / 100: 2xx, 3xx, 4xx, 5xx
+        final LongAdder[] statuses = {new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder(),
+                new LongAdder(), new LongAdder()};
+        
+        void record(long elapsedNanos, int status) {
+            latency.recordNanos(elapsedNanos);
+            statuses[Math.min(Math.max(status / 100, 0), statuses.length - 1)].increment();
+        }
+        
+        Map<String, Object> snapshot() {
+            Map<String, Object> stats = new LinkedHashMap<>(latency.snapshot());
+            stats.put("2xx", statuses[2].sum());
+            stats.put("3xx", statuses[3].sum());
+            stats.put("4xx", statuses[4].sum());
+            stats.put("5xx", statuses[5].sum());
+            return stats;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.photoshare.metrics;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Times controller requests. Async handlers (CompletableFuture results) are
+ * timed from the first dispatch until the response completes.
+ */
+public class EndpointMetricsInterceptor implements AsyncHandlerInterceptor {
+    
+    private static final String START_ATTRIBUTE = EndpointMetricsInterceptor.class.getName() + ".start";
+    
+    private final EndpointMetrics endpointMetrics;
+    
+    public EndpointMetricsInterceptor(EndpointMetrics endpointMetrics) {
+        this.endpointMetrics = endpointMetrics;
+    }
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // An async redispatch keeps the attribute from the first dispatch
+        if (handler instanceof HandlerMethod && request.getAttribute(START_ATTRIBUTE) == null) {
+            request.setAttribute(START_ATTRIBUTE, System.nanoTime());
+        }
+        return true;
+    }
+    
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object start = request.getAttribute(START_ATTRIBUTE);
+        if (!(start instanceof Long)) {
+            return;
+        }
+        request.removeAttribute(START_ATTRIBUTE);
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String endpoint = request.getMethod() + " " + (pattern != null ? pattern : request.getRequestURI());
+        int status = ex != null && response.getStatus() < 400 ? 500 : response.getStatus();
+        endpointMetrics.record(endpoint, System.nanoTime() - (Long) start, status);
+    }
+}
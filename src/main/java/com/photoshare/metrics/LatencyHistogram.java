@@ -0,0 +1,95 @@
+package com.photoshare.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free log-linear histogram of latencies in microseconds. Each power of
+ * two is split into 8 buckets, so percentiles are accurate to about 12%
+ * over the whole range while recording is a couple of atomic increments.
+ * Counts are cumulative since startup.
+ */
+public class LatencyHistogram {
+    
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Long::max, 0);
+    
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        counts.incrementAndGet(bucketOf(micros));
+        total.increment();
+        sumMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+    
+    public long count() {
+        return total.sum();
+    }
+    
+    /** Count, mean, p50/p99/p999 and max in milliseconds. */
+    public Map<String, Object> snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        long max = maxMicros.get();
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", count);
+        stats.put("meanMs", count == 0 ? 0.0 : millis(sumMicros.sum() / count));
+        stats.put("p50Ms", millis(percentile(snapshot, count, 0.50, max)));
+        stats.put("p99Ms", millis(percentile(snapshot, count, 0.99, max)));
+        stats.put("p999Ms", millis(percentile(snapshot, count, 0.999, max)));
+        stats.put("maxMs", millis(max));
+        return stats;
+    }
+    
+    private static long percentile(long[] snapshot, long count, double quantile, long max) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+    
+    static int bucketOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) ((micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+    
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lower = (1L << exponent) + (bucket % SUB_BUCKETS) * width;
+        return lower + width - 1;
+    }
+    
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,71 @@
+package com.photoshare.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, bytes, errors and in-flight count for one kind of storage call.
+ */
+public class OperationMetrics {
+    
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+    private final StorageLoad load;
+    private final boolean sampleLoadLatency;
+    
+    /**
+     * @param load overall storage load, shared by all operations
+     * @param sampleLoadLatency whether this operation's latency feeds {@code load}; calls whose
+     *                          duration tracks their size (streams, listings) would only add noise
+     */
+    public OperationMetrics(StorageLoad load, boolean sampleLoadLatency) {
+        this.load = load;
+        this.sampleLoadLatency = sampleLoadLatency;
+    }
+    
+    /** Marks a call as started; pass the result to {@link #stop}. */
+    public long start() {
+        enter();
+        return System.nanoTime();
+    }
+    
+    public void stop(long startNanos, long transferredBytes, boolean failed) {
+        exit();
+        record(System.nanoTime() - startNanos, transferredBytes, failed);
+    }
+    
+    /** In-flight tracking on its own, for calls whose latency is recorded separately. */
+    public void enter() {
+        inFlight.increment();
+        load.enter();
+    }
+    
+    public void exit() {
+        inFlight.decrement();
+        load.exit();
+    }
+    
+    public void record(long elapsedNanos, long transferredBytes, boolean failed) {
+        latency.recordNanos(elapsedNanos);
+        if (sampleLoadLatency) {
+            load.record(elapsedNanos);
+        }
+        if (transferredBytes > 0) {
+            bytes.add(transferredBytes);
+        }
+        if (failed) {
+            errors.increment();
+        }
+    }
+    
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>(latency.snapshot());
+        stats.put("bytes", bytes.sum());
+        stats.put("errors", errors.sum());
+        stats.put("inFlight", inFlight.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,51 @@
+package com.photoshare.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Current storage load across all containers: calls in flight and a
+ * time-decayed average latency. Unlike the cumulative histograms this
+ * tracks the last few seconds, so it can drive load shedding.
+ */
+public class StorageLoad {
+    
+    private static final double DECAY_NANOS = 5_000_000_000.0;
+    
+    private final LongAdder inFlight = new LongAdder();
+    private final AtomicLong averageNanosBits = new AtomicLong(Double.doubleToLongBits(0));
+    private volatile long lastSampleNanos = System.nanoTime();
+    
+    void enter() {
+        inFlight.increment();
+    }
+    
+    void exit() {
+        inFlight.decrement();
+    }
+    
+    void record(long elapsedNanos) {
+        long now = System.nanoTime();
+        // Each sample weighs by the time since the previous one, so the average covers
+        // roughly the last DECAY_NANOS whatever the call rate
+        double weight = 1 - Math.exp(-(now - lastSampleNanos) / DECAY_NANOS);
+        lastSampleNanos = now;
+        long bits;
+        double average;
+        do {
+            bits = averageNanosBits.get();
+            average = Double.longBitsToDouble(bits);
+        } while (!averageNanosBits.compareAndSet(bits,
+                Double.doubleToLongBits(average + weight * (elapsedNanos - average))));
+    }
+    
+    public long inFlight() {
+        return inFlight.sum();
+    }
+    
+    /** Recent average latency, decayed towards zero while no calls complete. */
+    public double recentLatencyMillis() {
+        double idle = Math.exp(-(System.nanoTime() - lastSampleNanos) / DECAY_NANOS);
+        return Double.longBitsToDouble(averageNanosBits.get()) * idle / 1_000_000.0;
+    }
+}
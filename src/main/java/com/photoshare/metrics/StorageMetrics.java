@@ -0,0 +1,40 @@
+package com.photoshare.metrics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Storage call metrics keyed by container, then operation.
+ */
+@Component
+public class StorageMetrics {
+    
+    // Single-document calls, whose latency reflects how loaded storage is
+    private static final Set<String> LOAD_LATENCY_OPERATIONS = Set.of("read", "attributes", "write", "writeIfMatch", "delete");
+    
+    private final Map<String, Map<String, OperationMetrics>> containers = new ConcurrentHashMap<>();
+    private final StorageLoad load = new StorageLoad();
+    
+    public OperationMetrics get(String containerName, String operation) {
+        return containers.computeIfAbsent(containerName, name -> new ConcurrentHashMap<>())
+                .computeIfAbsent(operation, name -> new OperationMetrics(load, LOAD_LATENCY_OPERATIONS.contains(operation)));
+    }
+    
+    public StorageLoad load() {
+        return load;
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new TreeMap<>();
+        containers.forEach((containerName, operations) -> {
+            Map<String, Object> container = new TreeMap<>();
+            operations.forEach((operation, metrics) -> container.put(operation, metrics.snapshot()));
+            stats.put(containerName, container);
+        });
+        return stats;
+    }
+}
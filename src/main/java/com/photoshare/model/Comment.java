@@ -0,0 +1,39 @@
+package com.photoshare.model;
+
+import java.time.LocalDateTime;
+
+public class Comment {
+    private String id;
+    private String userId;
+    private String username;
+    private String text;
+    private LocalDateTime timestamp;
+    
+    public Comment() {
+        this.timestamp = LocalDateTime.now();
+    }
+    
+    public Comment(String id, String userId, String username, String text) {
+        this.id = id;
+        this.userId = userId;
+        this.username = username;
+        this.text = text;
+        this.timestamp = LocalDateTime.now();
+    }
+    
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public String getUserId() { return userId; }
+    public void setUserId(String userId) { this.userId = userId; }
+    
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+    
+    public String getText() { return text; }
+    public void setText(String text) { this.text = text; }
+    
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+}
@@ -0,0 +1,20 @@
+package com.photoshare.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CommentSegment {
+    private List<Comment> comments;
+    
+    public CommentSegment() {
+        this.comments = new ArrayList<>();
+    }
+    
+    public CommentSegment(List<Comment> comments) {
+        this.comments = new ArrayList<>(comments);
+    }
+    
+    // Getters and Setters
+    public List<Comment> getComments() { return comments; }
+    public void setComments(List<Comment> comments) { this.comments = comments; }
+}
@@ -0,0 +1,23 @@
+package com.photoshare.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The photos that use one stored image.
+ */
+public class ImageReferences {
+    private List<String> photoIds;
+    
+    public ImageReferences() {
+        this.photoIds = new ArrayList<>();
+    }
+    
+    public ImageReferences(List<String> photoIds) {
+        this.photoIds = new ArrayList<>(photoIds);
+    }
+    
+    // Getters and Setters
+    public List<String> getPhotoIds() { return photoIds; }
+    public void setPhotoIds(List<String> photoIds) { this.photoIds = photoIds; }
+}
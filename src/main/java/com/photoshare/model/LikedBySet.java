@@ -0,0 +1,237 @@
+package com.photoshare.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Set of user ids that liked a photo. Canonical UUID ids (everything signup
+ * issues) are packed as two longs in an open-addressing table, giving O(1)
+ * membership and 16 bytes per id; any other id falls back to a string set.
+ *
+ * Stored as {"ids": packed UUID bytes, "other": [...]}. The legacy
+ * form, a JSON array of id strings, is still accepted when reading.
+ */
+@JsonSerialize(using = LikedBySet.Serializer.class)
+@JsonDeserialize(using = LikedBySet.Deserializer.class)
+public class LikedBySet {
+    
+    private static final int MIN_CAPACITY = 8;
+    
+    // hi/lo pairs; an all-zero pair marks an empty slot
+    private long[] slots = new long[0];
+    private int uuidCount;
+    private boolean containsNilUuid;
+    private Set<String> others;
+    
+    public LikedBySet() {}
+    
+    public LikedBySet(LikedBySet other) {
+        this.slots = other.slots.clone();
+        this.uuidCount = other.uuidCount;
+        this.containsNilUuid = other.containsNilUuid;
+        this.others = other.others != null ? new HashSet<>(other.others) : null;
+    }
+    
+    public boolean contains(String userId) {
+        if (userId == null) {
+            return false;
+        }
+        UUID uuid = parseCanonical(userId);
+        if (uuid == null) {
+            return others != null && others.contains(userId);
+        }
+        return containsUuid(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+    
+    /** Returns true if the id was not present before. */
+    public boolean add(String userId) {
+        if (userId == null) {
+            return false;
+        }
+        UUID uuid = parseCanonical(userId);
+        if (uuid == null) {
+            if (others == null) {
+                others = new HashSet<>();
+            }
+            return others.add(userId);
+        }
+        return addUuid(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+    
+    public int size() {
+        return uuidCount + (containsNilUuid ? 1 : 0) + (others != null ? others.size() : 0);
+    }
+    
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+    
+    private boolean containsUuid(long hi, long lo) {
+        if (hi == 0 && lo == 0) {
+            return containsNilUuid;
+        }
+        if (uuidCount == 0) {
+            return false;
+        }
+        int mask = capacity() - 1;
+        for (int i = slot(hi, lo) & mask; ; i = (i + 1) & mask) {
+            long h = slots[2 * i];
+            long l = slots[2 * i + 1];
+            if (h == 0 && l == 0) {
+                return false;
+            }
+            if (h == hi && l == lo) {
+                return true;
+            }
+        }
+    }
+    
+    private boolean addUuid(long hi, long lo) {
+        if (hi == 0 && lo == 0) {
+            boolean added = !containsNilUuid;
+            containsNilUuid = true;
+            return added;
+        }
+        // Keep the load factor at or below 1/2 so probe chains stay short
+        if ((uuidCount + 1) * 2 > capacity()) {
+            resize(Math.max(MIN_CAPACITY, capacity() * 2));
+        }
+        int mask = capacity() - 1;
+        for (int i = slot(hi, lo) & mask; ; i = (i + 1) & mask) {
+            long h = slots[2 * i];
+            long l = slots[2 * i + 1];
+            if (h == 0 && l == 0) {
+                slots[2 * i] = hi;
+                slots[2 * i + 1] = lo;
+                uuidCount++;
+                return true;
+            }
+            if (h == hi && l == lo) {
+                return false;
+            }
+        }
+    }
+    
+    private int capacity() {
+        return slots.length / 2;
+    }
+    
+    private void resize(int newCapacity) {
+        long[] old = slots;
+        slots = new long[newCapacity * 2];
+        uuidCount = 0;
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != 0 || old[i + 1] != 0) {
+                addUuid(old[i], old[i + 1]);
+            }
+        }
+    }
+    
+    private static int slot(long hi, long lo) {
+        long h = (hi ^ Long.rotateLeft(lo, 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+    
+    // Only the canonical lowercase form is packed, so ids round-trip exactly
+    private static UUID parseCanonical(String value) {
+        if (value.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(value);
+            return uuid.toString().equals(value) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    private byte[] packedIds() {
+        ByteBuffer buffer = ByteBuffer.allocate((uuidCount + (containsNilUuid ? 1 : 0)) * 16);
+        if (containsNilUuid) {
+            buffer.putLong(0).putLong(0);
+        }
+        for (int i = 0; i < slots.length; i += 2) {
+            if (slots[i] != 0 || slots[i + 1] != 0) {
+                buffer.putLong(slots[i]).putLong(slots[i + 1]);
+            }
+        }
+        return buffer.array();
+    }
+    
+    private void addPackedIds(byte[] packed) {
+        int count = packed.length / 16;
+        if (count == 0) {
+            return;
+        }
+        int capacity = MIN_CAPACITY;
+        while (capacity < count * 2) {
+            capacity <<= 1;
+        }
+        resize(Math.max(capacity, capacity()));
+        ByteBuffer buffer = ByteBuffer.wrap(packed);
+        while (buffer.remaining() >= 16) {
+            addUuid(buffer.getLong(), buffer.getLong());
+        }
+    }
+    
+    public static class Serializer extends JsonSerializer<LikedBySet> {
+        @Override
+        public void serialize(LikedBySet value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeStartObject();
+            // Base64 in JSON, raw bytes in binary formats
+            gen.writeBinaryField("ids", value.packedIds());
+            if (value.others != null && !value.others.isEmpty()) {
+                gen.writeArrayFieldStart("other");
+                for (String other : value.others) {
+                    gen.writeString(other);
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndObject();
+        }
+    }
+    
+    public static class Deserializer extends JsonDeserializer<LikedBySet> {
+        @Override
+        public LikedBySet deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            LikedBySet set = new LikedBySet();
+            if (p.currentToken() == JsonToken.START_ARRAY) {
+                // Legacy documents store likedBy as a plain list of ids
+                while (p.nextToken() != JsonToken.END_ARRAY) {
+                    set.add(p.getValueAsString());
+                }
+                return set;
+            }
+            if (p.currentToken() != JsonToken.START_OBJECT) {
+                return (LikedBySet) ctxt.handleUnexpectedToken(LikedBySet.class, p);
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.getCurrentName();
+                p.nextToken();
+                if ("ids".equals(field)) {
+                    set.addPackedIds(p.getBinaryValue());
+                } else if ("other".equals(field)) {
+                    while (p.nextToken() != JsonToken.END_ARRAY) {
+                        set.add(p.getValueAsString());
+                    }
+                } else {
+                    p.skipChildren();
+                }
+            }
+            return set;
+        }
+    }
+}
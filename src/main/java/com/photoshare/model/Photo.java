@@ -0,0 +1,125 @@
+package com.photoshare.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class Photo {
+    private String id;
+    private String url;
+    private Map<String, String> renditions;
+    private String title;
+    private String caption;
+    private String location;
+    private String tags;
+    private String creatorId;
+    private String creatorName;
+    private int likes;
+    private LikedBySet likedBy;
+    private List<Comment> comments;
+    private int commentCount;
+    private double rating;
+    private int ratingCount;
+    private LocalDateTime uploadedAt;
+    // Bumped on every stored change; null for photos saved before it existed
+    private LocalDateTime updatedAt;
+    private Boolean likedByMe;
+    
+    public Photo() {
+        this.likedBy = new LikedBySet();
+        this.comments = new ArrayList<>();
+        this.renditions = new LinkedHashMap<>();
+        this.uploadedAt = LocalDateTime.now();
+    }
+    
+    // Shallow copy for response views; likedBy and comments are shared
+    public Photo(Photo other) {
+        this.id = other.id;
+        this.url = other.url;
+        this.renditions = other.renditions;
+        this.title = other.title;
+        this.caption = other.caption;
+        this.location = other.location;
+        this.tags = other.tags;
+        this.creatorId = other.creatorId;
+        this.creatorName = other.creatorName;
+        this.likes = other.likes;
+        this.likedBy = other.likedBy;
+        this.comments = other.comments;
+        this.commentCount = other.commentCount;
+        this.rating = other.rating;
+        this.ratingCount = other.ratingCount;
+        this.uploadedAt = other.uploadedAt;
+        this.updatedAt = other.updatedAt;
+        this.likedByMe = other.likedByMe;
+    }
+    
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+    
+    public String getUrl() { return url; }
+    public void setUrl(String url) { this.url = url; }
+    
+    // Downscaled variants keyed by longest edge in pixels, e.g. "256" -> url
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public Map<String, String> getRenditions() { return renditions; }
+    public void setRenditions(Map<String, String> renditions) { this.renditions = renditions != null ? renditions : new LinkedHashMap<>(); }
+    
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+    
+    public String getCaption() { return caption; }
+    public void setCaption(String caption) { this.caption = caption; }
+    
+    public String getLocation() { return location; }
+    public void setLocation(String location) { this.location = location; }
+    
+    public String getTags() { return tags; }
+    public void setTags(String tags) { this.tags = tags; }
+    
+    public String getCreatorId() { return creatorId; }
+    public void setCreatorId(String creatorId) { this.creatorId = creatorId; }
+    
+    public String getCreatorName() { return creatorName; }
+    public void setCreatorName(String creatorName) { this.creatorName = creatorName; }
+    
+    public int getLikes() { return likes; }
+    public void setLikes(int likes) { this.likes = likes; }
+    
+    // Persisted (see the storage mix-in) but never sent to API clients
+    @JsonIgnore
+    public LikedBySet getLikedBy() { return likedBy; }
+    @JsonIgnore
+    public void setLikedBy(LikedBySet likedBy) { this.likedBy = likedBy != null ? likedBy : new LikedBySet(); }
+    
+    // Only the latest few comments; the full history lives in comment segments
+    public List<Comment> getComments() { return comments; }
+    public void setComments(List<Comment> comments) { this.comments = comments; }
+    
+    public int getCommentCount() { return commentCount; }
+    public void setCommentCount(int commentCount) { this.commentCount = commentCount; }
+    
+    public double getRating() { return rating; }
+    public void setRating(double rating) { this.rating = rating; }
+    
+    public int getRatingCount() { return ratingCount; }
+    public void setRatingCount(int ratingCount) { this.ratingCount = ratingCount; }
+    
+    public LocalDateTime getUploadedAt() { return uploadedAt; }
+    public void setUploadedAt(LocalDateTime uploadedAt) { this.uploadedAt = uploadedAt; }
+    
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+    
+    // Whether the requesting user liked the photo; only set on responses
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Boolean getLikedByMe() { return likedByMe; }
+    public void setLikedByMe(Boolean likedByMe) { this.likedByMe = likedByMe; }
+}
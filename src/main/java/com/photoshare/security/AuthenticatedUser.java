@@ -0,0 +1,29 @@
+package com.photoshare.security;
+
+import java.time.Instant;
+
+/**
+ * The identity carried by a verified session token.
+ */
+public class AuthenticatedUser {
+    
+    /** Request attribute under which the token filter stores the caller. */
+    public static final String REQUEST_ATTRIBUTE = "com.photoshare.security.AuthenticatedUser";
+    
+    private final String userId;
+    private final String username;
+    private final String role;
+    private final Instant expiresAt;
+    
+    public AuthenticatedUser(String userId, String username, String role, Instant expiresAt) {
+        this.userId = userId;
+        this.username = username;
+        this.role = role;
+        this.expiresAt = expiresAt;
+    }
+    
+    public String getUserId() { return userId; }
+    public String getUsername() { return username; }
+    public String getRole() { return role; }
+    public Instant getExpiresAt() { return expiresAt; }
+}
@@ -0,0 +1,98 @@
+package com.photoshare.security;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt on its own small pool so a burst of logins queues here instead
+ * of occupying request threads. The queue is bounded; when it is full the
+ * returned future fails with {@link RejectedExecutionException}.
+ */
+@Service
+public class PasswordHasher {
+    
+    @Value("${photoshare.auth.hash-threads:0}")
+    private int hashThreads;
+    
+    @Value("${photoshare.auth.hash-queue-capacity:64}")
+    private int queueCapacity;
+    
+    private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    
+    private ThreadPoolExecutor executor;
+    
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalWaitMillis = new LongAdder();
+    private final LongAdder totalHashMillis = new LongAdder();
+    
+    @PostConstruct
+    public void start() {
+        int workers = hashThreads > 0 ? hashThreads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("bcrypt-");
+        threadFactory.setDaemon(true);
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+    
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword));
+    }
+    
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+    
+    public Map<String, Object> stats() {
+        long done = completed.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("activeWorkers", executor.getActiveCount());
+        stats.put("workers", executor.getMaximumPoolSize());
+        stats.put("completed", done);
+        stats.put("rejected", rejected.sum());
+        stats.put("avgWaitMs", done == 0 ? 0 : totalWaitMillis.sum() / done);
+        stats.put("avgHashMs", done == 0 ? 0 : totalHashMillis.sum() / done);
+        return stats;
+    }
+    
+    private <T> CompletableFuture<T> submit(Supplier<T> work) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long startedAt = System.nanoTime();
+                try {
+                    return work.get();
+                } finally {
+                    long finishedAt = System.nanoTime();
+                    totalWaitMillis.add((startedAt - enqueuedAt) / 1_000_000);
+                    totalHashMillis.add((finishedAt - startedAt) / 1_000_000);
+                    completed.increment();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.photoshare.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Requires a valid bearer token on state-changing requests. Reads pass
+ * through untouched. A {@code userId} request parameter, where the endpoint
+ * takes one, must be given once and name the token's user; handlers act as
+ * the {@link AuthenticatedUser} stored on the request rather than trusting
+ * ids sent by the client.
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+    
+    private static final Set<String> PROTECTED_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+    private static final String BEARER = "Bearer ";
+    
+    private final TokenService tokenService;
+    private final Set<String> readOnlyPaths;
+    
+    /**
+     * @param readOnlyPaths request paths that use POST for reads (e.g. batch
+     *                      lookups) and so need no token
+     */
+    public TokenAuthenticationFilter(TokenService tokenService, Set<String> readOnlyPaths) {
+        this.tokenService = tokenService;
+        this.readOnlyPaths = readOnlyPaths;
+    }
+    
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !PROTECTED_METHODS.contains(request.getMethod())
+                || readOnlyPaths.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        AuthenticatedUser user = header != null && header.startsWith(BEARER)
+                ? tokenService.verify(header.substring(BEARER.length()).trim())
+                : null;
+        if (user == null) {
+            reject(response, HttpServletResponse.SC_UNAUTHORIZED, "Valid session token required");
+            return;
+        }
+        
+        // Repeated values would be bound as one comma-joined string, so only a single one is accepted
+        String[] userIds = request.getParameterValues("userId");
+        if (userIds != null && userIds.length != 1) {
+            reject(response, HttpServletResponse.SC_BAD_REQUEST, "userId must be given once");
+            return;
+        }
+        if (userIds != null && !userIds[0].equals(user.getUserId())) {
+            reject(response, HttpServletResponse.SC_FORBIDDEN, "Token does not belong to this user");
+            return;
+        }
+        
+        request.setAttribute(AuthenticatedUser.REQUEST_ATTRIBUTE, user);
+        chain.doFilter(request, response);
+    }
+    
+    private static void reject(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"" + message + "\"}");
+    }
+}
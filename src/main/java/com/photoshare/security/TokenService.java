@@ -0,0 +1,132 @@
+package com.photoshare.security;
+
+import com.photoshare.model.User;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Issues and verifies stateless session tokens of the form
+ * {@code b64(userId).b64(username).b64(role).expiresEpochSeconds.b64(hmac)},
+ * signed with HMAC-SHA256. Verification is one MAC over a short string, with
+ * no storage lookup; a token stays valid until it expires.
+ */
+@Service
+public class TokenService {
+    
+    private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+    
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    
+    @Value("${photoshare.auth.token-secret:}")
+    private String tokenSecret;
+    
+    /** Permits running without a secret on a per-process random key (development only). */
+    @Value("${photoshare.auth.allow-random-secret:false}")
+    private boolean allowRandomSecret;
+    
+    @Value("${photoshare.storage.backend:azure}")
+    private String storageBackend;
+    
+    @Value("${photoshare.auth.token-ttl:12h}")
+    private Duration tokenTtl;
+    
+    private Mac prototype;
+    
+    @PostConstruct
+    public void init() throws GeneralSecurityException {
+        byte[] key;
+        if (tokenSecret == null || tokenSecret.isBlank()) {
+            // A per-process key logs everyone out on restart and fails tokens across instances
+            if (!allowRandomSecret && !"local".equalsIgnoreCase(storageBackend)) {
+                throw new IllegalStateException("photoshare.auth.token-secret (PHOTOSHARE_TOKEN_SECRET) must be set; "
+                        + "set photoshare.auth.allow-random-secret=true to run without one in development");
+            }
+            key = new byte[MIN_SECRET_BYTES];
+            new SecureRandom().nextBytes(key);
+            log.warn("photoshare.auth.token-secret is not set; using a random key, so tokens will not survive "
+                    + "a restart or work across instances");
+        } else {
+            key = tokenSecret.getBytes(StandardCharsets.UTF_8);
+            if (key.length < MIN_SECRET_BYTES) {
+                throw new IllegalStateException("photoshare.auth.token-secret must be at least "
+                        + MIN_SECRET_BYTES + " bytes");
+            }
+        }
+        prototype = Mac.getInstance(ALGORITHM);
+        prototype.init(new SecretKeySpec(key, ALGORITHM));
+    }
+    
+    public String issue(User user) {
+        Instant expiresAt = Instant.now().plus(tokenTtl);
+        String payload = encode(user.getId()) + "." + encode(user.getUsername()) + "." + encode(user.getRole())
+                + "." + expiresAt.getEpochSecond();
+        return payload + "." + ENCODER.encodeToString(sign(payload));
+    }
+    
+    /** Returns the token's user, or null if the token is malformed, forged or expired. */
+    public AuthenticatedUser verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int signatureStart = token.lastIndexOf('.');
+        if (signatureStart < 0) {
+            return null;
+        }
+        String payload = token.substring(0, signatureStart);
+        String[] parts = payload.split("\\.", -1);
+        if (parts.length != 4) {
+            return null;
+        }
+        try {
+            byte[] signature = DECODER.decode(token.substring(signatureStart + 1));
+            if (!MessageDigest.isEqual(signature, sign(payload))) {
+                return null;
+            }
+            Instant expiresAt = Instant.ofEpochSecond(Long.parseLong(parts[3]));
+            if (!expiresAt.isAfter(Instant.now())) {
+                return null;
+            }
+            return new AuthenticatedUser(decode(parts[0]), decode(parts[1]), decode(parts[2]), expiresAt);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    public Duration getTokenTtl() {
+        return tokenTtl;
+    }
+    
+    private byte[] sign(String payload) {
+        try {
+            // Mac is not thread-safe; cloning the keyed prototype skips key setup
+            Mac mac = (Mac) prototype.clone();
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static String encode(String value) {
+        return ENCODER.encodeToString((value != null ? value : "").getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String decode(String value) {
+        return new String(DECODER.decode(value), StandardCharsets.UTF_8);
+    }
+}
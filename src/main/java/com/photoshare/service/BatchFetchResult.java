@@ -0,0 +1,21 @@
+package com.photoshare.service;
+
+import java.util.Map;
+
+/**
+ * Outcome of reading a set of named blobs: each readable name mapped to its
+ * object (null if the blob does not exist), and the names that could not be
+ * read mapped to the error.
+ */
+public class BatchFetchResult<T> {
+    private final Map<String, T> objects;
+    private final Map<String, Throwable> failures;
+    
+    public BatchFetchResult(Map<String, T> objects, Map<String, Throwable> failures) {
+        this.objects = objects;
+        this.failures = failures;
+    }
+    
+    public Map<String, T> getObjects() { return objects; }
+    public Map<String, Throwable> getFailures() { return failures; }
+}
@@ -0,0 +1,155 @@
+package com.photoshare.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * LRU cache of raw blob contents keyed by container and blob name, bounded
+ * by entry count and by total bytes. Entries older than the TTL are not
+ * dropped but handed back as stale so the caller can revalidate them against
+ * the blob ETag. Guarded by a ReentrantLock rather than a monitor, so virtual
+ * threads waiting on it do not pin their carrier; the critical sections are
+ * map operations only.
+ */
+public class BlobCache {
+    
+    private final int maxEntries;
+    private final long maxBytes;
+    private final long ttlNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    public BlobCache(int maxEntries, long maxBytes, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+    
+    public Entry get(String containerName, String blobName) {
+        lock.lock();
+        try {
+            return entries.get(key(containerName, blobName));
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /** Documents larger than an eighth of the byte budget are returned but not kept. */
+    public Entry put(String containerName, String blobName, byte[] data, String etag) {
+        Entry entry = new Entry(data, etag, System.nanoTime());
+        if (maxEntries <= 0 || etag == null) {
+            return entry;
+        }
+        String key = key(containerName, blobName);
+        lock.lock();
+        try {
+            if (data.length > maxBytes / 8) {
+                remove(key);
+                return entry;
+            }
+            Entry previous = entries.put(key, entry);
+            bytes += data.length - (previous != null ? previous.data.length : 0);
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries || bytes > maxBytes) {
+                bytes -= eldest.next().data.length;
+                eldest.remove();
+                evictions.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return entry;
+    }
+    
+    public void invalidate(String containerName, String blobName) {
+        lock.lock();
+        try {
+            remove(key(containerName, blobName));
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Caller holds the lock
+    private void remove(String key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.data.length;
+        }
+    }
+    
+    public boolean isFresh(Entry entry) {
+        return System.nanoTime() - entry.loadedAt < ttlNanos;
+    }
+    
+    /** Marks a stale entry as confirmed unchanged by the store. */
+    public void touch(String containerName, String blobName, Entry entry) {
+        revalidations.increment();
+        put(containerName, blobName, entry.data, entry.etag);
+    }
+    
+    public void recordHit() { hits.increment(); }
+    public void recordMiss() { misses.increment(); }
+    
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public long bytes() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public Map<String, Object> stats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("bytes", bytes());
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("revalidations", revalidations.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        return stats;
+    }
+    
+    private static String key(String containerName, String blobName) {
+        return containerName + "/" + blobName;
+    }
+    
+    public static final class Entry {
+        private final byte[] data;
+        private final String etag;
+        private final long loadedAt;
+        
+        Entry(byte[] data, String etag, long loadedAt) {
+            this.data = data;
+            this.etag = etag;
+            this.loadedAt = loadedAt;
+        }
+        
+        public byte[] getData() { return data; }
+        public String getEtag() { return etag; }
+    }
+}
@@ -0,0 +1,481 @@
+package com.photoshare.service;
+
+import com.photoshare.metrics.StorageMetrics;
+import com.photoshare.storage.BlobAttributes;
+import com.photoshare.storage.BulkheadStorageBackend;
+import com.photoshare.storage.ContainerBulkheads;
+import com.photoshare.storage.InstrumentedStorageBackend;
+import com.photoshare.storage.PreconditionFailedException;
+import com.photoshare.storage.StorageBackend;
+import com.photoshare.storage.StoredBlob;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+public class BlobStorageService {
+    
+    private static final Logger log = LoggerFactory.getLogger(BlobStorageService.class);
+    
+    // Uploaded images are named by content: this prefix plus the hex SHA-256
+    private static final String IMAGE_HASH_PREFIX = "sha256-";
+    
+    @Autowired
+    private StorageBackend storageBackend;
+    
+    @Autowired
+    private ContainerBulkheads bulkheads;
+    
+    @Autowired
+    private StorageMetrics storageMetrics;
+    
+    @Value("${photoshare.images.url-prefix:/api/images/}")
+    private String imageUrlPrefix;
+    
+    @Value("${photoshare.storage.fetch-threads:32}")
+    private int fetchThreads;
+    
+    @Value("${photoshare.storage.fetch-concurrency:16}")
+    private int defaultFetchConcurrency;
+    
+    @Value("${photoshare.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+    
+    @Value("${photoshare.cache.max-size:64MB}")
+    private DataSize cacheMaxSize;
+    
+    @Value("${photoshare.cache.ttl-ms:30000}")
+    private long cacheTtlMillis;
+    
+    @Value("${photoshare.storage.update-max-attempts:5}")
+    private int maxUpdateAttempts;
+    
+    @Value("${photoshare.storage.update-backoff-base-ms:20}")
+    private long updateBackoffBaseMillis;
+    
+    @Value("${photoshare.storage.update-backoff-max-ms:500}")
+    private long updateBackoffMaxMillis;
+    
+    @Value("${photoshare.storage.metadata-format:json}")
+    private String metadataFormat;
+    
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    
+    // The backend, instrumented and wrapped in per-container bulkheads; every storage call goes through it
+    private StorageBackend storage;
+    
+    private DocumentCodec codec;
+    
+    private ExecutorService fetchExecutor;
+    
+    private BlobCache cache;
+    
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder exhaustedUpdates = new LongAdder();
+    private final LongAdder uploadedImages = new LongAdder();
+    private final LongAdder deduplicatedImages = new LongAdder();
+    private final LongAdder deduplicatedBytes = new LongAdder();
+    
+    @PostConstruct
+    public void init() {
+        // Metrics sit inside the bulkhead, so latency is storage time and excludes waiting for a permit
+        this.storage = new BulkheadStorageBackend(new InstrumentedStorageBackend(storageBackend, storageMetrics), bulkheads);
+        if (virtualThreads) {
+            // Bulk downloads are bounded by the in-flight semaphore and the bulkheads, not by pool size
+            this.fetchExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("blob-fetch-", 0).factory());
+        } else {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("blob-fetch-");
+            threadFactory.setDaemon(true);
+            this.fetchExecutor = Executors.newFixedThreadPool(Math.max(1, fetchThreads), threadFactory);
+        }
+        this.cache = new BlobCache(cacheMaxEntries, cacheMaxSize.toBytes(), cacheTtlMillis);
+        this.codec = new DocumentCodec(DocumentCodec.Format.parse(metadataFormat));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        fetchExecutor.shutdownNow();
+    }
+    
+    public <T> void saveObject(String containerName, String blobName, T object) throws Exception {
+        byte[] data = encode(object);
+        cache.invalidate(containerName, blobName);
+        cache.put(containerName, blobName, data, storage.write(containerName, blobName, data, codec.contentType()));
+    }
+    
+    /**
+     * Saves the object only if the blob still has the given ETag. A null ETag
+     * means the blob must not exist yet. Returns the new ETag.
+     *
+     * @throws ConcurrentUpdateException if another writer got there first
+     */
+    public <T> String saveObjectIfMatch(String containerName, String blobName, T object, String etag) throws Exception {
+        byte[] data = encode(object);
+        cache.invalidate(containerName, blobName);
+        try {
+            String newEtag = storage.writeIfMatch(containerName, blobName, data, codec.contentType(), etag);
+            cache.put(containerName, blobName, data, newEtag);
+            return newEtag;
+        } catch (PreconditionFailedException e) {
+            conflicts.increment();
+            throw new ConcurrentUpdateException(containerName, blobName);
+        }
+    }
+    
+    /**
+     * Read-modify-write with optimistic concurrency. The mutation is applied to
+     * the latest version and saved with if-match; on conflict the object is
+     * re-read and the mutation re-applied, with bounded exponential backoff.
+     * Returns the saved object, or null if it does not exist.
+     */
+    public <T> T updateObject(String containerName, String blobName, Class<T> clazz, Mutation<T> mutation) throws Exception {
+        for (int attempt = 1; ; attempt++) {
+            Versioned<T> current = getVersionedObject(containerName, blobName, clazz);
+            if (current == null) {
+                return null;
+            }
+            T object = current.getValue();
+            if (!mutation.apply(object)) {
+                return object;
+            }
+            try {
+                saveObjectIfMatch(containerName, blobName, object, current.getEtag());
+                return object;
+            } catch (ConcurrentUpdateException e) {
+                if (attempt >= maxUpdateAttempts) {
+                    exhaustedUpdates.increment();
+                    throw e;
+                }
+                retries.increment();
+                backoff(attempt);
+            }
+        }
+    }
+    
+    @FunctionalInterface
+    public interface Mutation<T> {
+        /** Applies the change in place; returns false if nothing needs saving. */
+        boolean apply(T object) throws Exception;
+    }
+    
+    private void backoff(int attempt) throws InterruptedException {
+        long ceiling = Math.min(updateBackoffMaxMillis, updateBackoffBaseMillis << Math.min(attempt - 1, 16));
+        Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1));
+    }
+    
+    public <T> T getObject(String containerName, String blobName, Class<T> clazz) throws Exception {
+        BlobCache.Entry entry = getEntry(containerName, blobName);
+        return entry != null ? decode(entry.getData(), clazz) : null;
+    }
+    
+    public <T> Versioned<T> getVersionedObject(String containerName, String blobName, Class<T> clazz) throws Exception {
+        BlobCache.Entry entry = getEntry(containerName, blobName);
+        return entry != null ? new Versioned<>(decode(entry.getData(), clazz), entry.getEtag()) : null;
+    }
+    
+    private BlobCache.Entry getEntry(String containerName, String blobName) {
+        BlobCache.Entry cached = cache.get(containerName, blobName);
+        if (cached != null && cache.isFresh(cached)) {
+            cache.recordHit();
+            return cached;
+        }
+        
+        // A single conditional read replaces the old exists() + download pair
+        StoredBlob blob = storage.read(containerName, blobName, cached != null ? cached.getEtag() : null);
+        if (blob == StoredBlob.NOT_MODIFIED) {
+            cache.recordHit();
+            cache.touch(containerName, blobName, cached);
+            return cached;
+        }
+        cache.recordMiss();
+        if (blob == null) {
+            cache.invalidate(containerName, blobName);
+            return null;
+        }
+        return cache.put(containerName, blobName, blob.getData(), blob.getEtag());
+    }
+    
+    // Package-private so the serialization benchmarks measure exactly what storage writes and reads
+    byte[] encode(Object object) throws IOException {
+        return codec.encode(object);
+    }
+    
+    <T> T decode(byte[] data, Class<T> clazz) throws IOException {
+        return codec.decode(data, clazz);
+    }
+    
+    public Map<String, Object> getCacheStats() {
+        return cache.stats();
+    }
+    
+    public Map<String, Object> getConcurrencyStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("conflicts", conflicts.sum());
+        stats.put("retries", retries.sum());
+        stats.put("exhausted", exhaustedUpdates.sum());
+        return stats;
+    }
+    
+    public Map<String, Object> getImageUploadStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("uploaded", uploadedImages.sum());
+        stats.put("deduplicated", deduplicatedImages.sum());
+        stats.put("deduplicatedBytes", deduplicatedBytes.sum());
+        return stats;
+    }
+    
+    public <T> List<T> listObjects(String containerName, Class<T> clazz) throws Exception {
+        return listObjects(containerName, clazz, defaultFetchConcurrency).getObjects();
+    }
+    
+    /**
+     * Downloads every blob in the container with at most {@code maxInFlight}
+     * downloads running at once. Listing continues while earlier downloads are
+     * still in flight; results keep the listing order.
+     */
+    public <T> BulkFetchResult<T> listObjects(String containerName, Class<T> clazz, int maxInFlight) throws Exception {
+        long start = System.nanoTime();
+        Semaphore inFlight = new Semaphore(Math.max(1, maxInFlight));
+        
+        Map<String, Future<T>> pending = new LinkedHashMap<>();
+        try {
+            for (String blobName : storage.list(containerName, null)) {
+                pending.put(blobName, submitBounded(inFlight, () -> download(containerName, blobName, clazz)));
+            }
+        } catch (InterruptedException e) {
+            pending.values().forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+        
+        List<T> objects = new ArrayList<>(pending.size());
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<T>> entry : pending.entrySet()) {
+            try {
+                T object = entry.getValue().get();
+                if (object != null) {
+                    objects.add(object);
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                failures.put(entry.getKey(), cause.getClass().getSimpleName() + ": " + cause.getMessage());
+                log.warn("Failed to read blob {}/{}", containerName, entry.getKey(), cause);
+            }
+        }
+        
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        log.debug("Listed {} objects from {} in {} ms ({} failed, {} in flight max)",
+                objects.size(), containerName, elapsedMillis, failures.size(), maxInFlight);
+        return new BulkFetchResult<>(objects, failures, elapsedMillis);
+    }
+    
+    /**
+     * Reads the named blobs concurrently, through the cache, with at most
+     * {@code maxInFlight} reads at once. Every name maps to its object, or to
+     * null if the blob does not exist; blobs that could not be read map to
+     * the error instead.
+     */
+    public <T> BatchFetchResult<T> getObjects(String containerName, Collection<String> blobNames, Class<T> clazz,
+                                              int maxInFlight) throws Exception {
+        List<String> names = new ArrayList<>(new LinkedHashSet<>(blobNames));
+        List<Callable<T>> reads = new ArrayList<>(names.size());
+        for (String blobName : names) {
+            reads.add(() -> getObject(containerName, blobName, clazz));
+        }
+        
+        Map<String, T> objects = new LinkedHashMap<>();
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        List<Future<T>> results = submitAll(reads, maxInFlight);
+        for (int i = 0; i < names.size(); i++) {
+            try {
+                objects.put(names.get(i), results.get(i).get());
+            } catch (ExecutionException e) {
+                failures.put(names.get(i), e.getCause() != null ? e.getCause() : e);
+            }
+        }
+        return new BatchFetchResult<>(objects, failures);
+    }
+    
+    /**
+     * Runs the tasks on the fetch pool with at most {@code maxInFlight} running
+     * at once, blocking the caller while the limit is reached. The futures keep
+     * the order of the tasks.
+     */
+    public <R> List<Future<R>> submitAll(List<? extends Callable<R>> tasks, int maxInFlight) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(Math.max(1, maxInFlight));
+        List<Future<R>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<R> task : tasks) {
+                futures.add(submitBounded(inFlight, task));
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+        return futures;
+    }
+    
+    private <R> Future<R> submitBounded(Semaphore inFlight, Callable<R> task) throws InterruptedException {
+        inFlight.acquire();
+        try {
+            return fetchExecutor.submit(() -> {
+                try {
+                    return task.call();
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+    
+    private <T> T download(String containerName, String blobName, Class<T> clazz) throws Exception {
+        StoredBlob blob = storage.read(containerName, blobName, null);
+        if (blob == null) {
+            // Deleted between listing and download
+            return null;
+        }
+        // Bulk reads warm the cache for the single-object lookups that follow
+        cache.put(containerName, blobName, blob.getData(), blob.getEtag());
+        return decode(blob.getData(), clazz);
+    }
+    
+    /**
+     * Raw blob access for data that is not a single document, such as feed
+     * manifest segments. Bypasses the metadata cache. Returns null if the
+     * blob does not exist.
+     */
+    public byte[] readBlob(String containerName, String blobName) {
+        StoredBlob blob = storage.read(containerName, blobName, null);
+        return blob != null ? blob.getData() : null;
+    }
+    
+    public void writeBlob(String containerName, String blobName, byte[] data, String contentType) {
+        storage.write(containerName, blobName, data, contentType);
+    }
+    
+    public List<String> listBlobNames(String containerName, String prefix) {
+        List<String> names = new ArrayList<>();
+        storage.list(containerName, prefix).forEach(names::add);
+        return names;
+    }
+    
+    public void deleteObject(String containerName, String blobName) {
+        try {
+            storage.delete(containerName, blobName);
+        } finally {
+            cache.invalidate(containerName, blobName);
+        }
+    }
+    
+    /** Deletes every blob whose name starts with the prefix; returns how many were removed. */
+    public int deleteObjects(String containerName, String prefix) {
+        int deleted = 0;
+        for (String blobName : storage.list(containerName, prefix)) {
+            storage.delete(containerName, blobName);
+            cache.invalidate(containerName, blobName);
+            deleted++;
+        }
+        return deleted;
+    }
+    
+    /**
+     * Stores an uploaded image under the SHA-256 of its content. If a blob with
+     * that name already exists the same picture was uploaded before, so the
+     * upload is skipped and the existing blob returned.
+     */
+    public StoredImage uploadImage(MultipartFile file) throws Exception {
+        String blobName = IMAGE_HASH_PREFIX + sha256(file);
+        if (storage.attributes("images", blobName) != null) {
+            deduplicatedImages.increment();
+            deduplicatedBytes.add(file.getSize());
+            return new StoredImage(blobName, imageUrl(blobName), true);
+        }
+        // Two first uploads of the same content racing here write identical bytes, which is harmless
+        try (InputStream inputStream = file.getInputStream()) {
+            storage.writeStream("images", blobName, inputStream, file.getSize(), file.getContentType());
+        }
+        uploadedImages.increment();
+        return new StoredImage(blobName, imageUrl(blobName), false);
+    }
+    
+    /**
+     * Images are served through the API (and its disk cache) by default; an
+     * empty prefix hands out the backend's own URL instead.
+     */
+    private String imageUrl(String blobName) {
+        return imageUrlPrefix.isEmpty() ? storage.url("images", blobName) : imageUrlPrefix + blobName;
+    }
+    
+    // Multipart files are already spooled locally, so hashing first costs a local read, not a transfer
+    private static String sha256(MultipartFile file) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+    
+    /** True for image blobs named by their content hash. */
+    static boolean isContentAddressed(String blobName) {
+        return blobName.length() == IMAGE_HASH_PREFIX.length() + 64 && blobName.startsWith(IMAGE_HASH_PREFIX);
+    }
+    
+    public byte[] downloadImage(String blobName) {
+        StoredBlob blob = storage.read("images", blobName, null);
+        if (blob == null) {
+            throw new IllegalStateException("Image not found: " + blobName);
+        }
+        return blob.getData();
+    }
+    
+    /**
+     * Downloads an image blob into the given file (created or truncated).
+     * Returns null if the blob does not exist.
+     */
+    public ImageFile downloadImageToFile(String blobName, Path target) {
+        BlobAttributes attributes = storage.downloadToFile("images", blobName, target);
+        return attributes != null
+                ? new ImageFile(target, attributes.getLength(), attributes.getEtag(), attributes.getContentType())
+                : null;
+    }
+    
+    public StoredImage uploadImage(String blobName, byte[] data, String contentType) {
+        storage.write("images", blobName, data, contentType);
+        return new StoredImage(blobName, imageUrl(blobName));
+    }
+}
@@ -0,0 +1,28 @@
+package com.photoshare.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk container read: the decoded objects, the blobs that could
+ * not be read (blob name to error message) and how long the call took.
+ */
+public class BulkFetchResult<T> {
+    private final List<T> objects;
+    private final Map<String, String> failures;
+    private final long elapsedMillis;
+    
+    public BulkFetchResult(List<T> objects, Map<String, String> failures, long elapsedMillis) {
+        this.objects = objects;
+        this.failures = failures;
+        this.elapsedMillis = elapsedMillis;
+    }
+    
+    public List<T> getObjects() { return objects; }
+    public Map<String, String> getFailures() { return failures; }
+    public long getElapsedMillis() { return elapsedMillis; }
+    
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+}
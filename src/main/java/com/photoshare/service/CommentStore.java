@@ -0,0 +1,250 @@
+package com.photoshare.service;
+
+import com.photoshare.model.Comment;
+import com.photoshare.model.CommentSegment;
+import com.photoshare.model.Photo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores comments outside the photo document, in fixed-size segment blobs
+ * named {photoId}/{segment}.json in the "comments" container. The photo
+ * itself only carries the comment count and the latest few comments, so its
+ * size no longer grows with activity.
+ */
+@Service
+public class CommentStore {
+    
+    private static final Logger log = LoggerFactory.getLogger(CommentStore.class);
+    
+    private static final String CONTAINER = "comments";
+    
+    @Autowired
+    private BlobStorageService blobStorageService;
+    
+    @Value("${photoshare.comments.segment-size:100}")
+    private int segmentSize;
+    
+    @Value("${photoshare.comments.preview-size:3}")
+    private int previewSize;
+    
+    /**
+     * Appends a comment and updates the photo's count and preview. If the
+     * photo update fails the comment is taken out of its segment again, so a
+     * retried request does not leave a duplicate behind. Returns the updated
+     * photo, or null if the photo does not exist.
+     */
+    public Photo addComment(String photoId, Comment comment) throws Exception {
+        Photo photo = blobStorageService.getObject("photos", photoKey(photoId), Photo.class);
+        if (photo == null) {
+            return null;
+        }
+        if (isLegacy(photo)) {
+            photo = migrateLegacyComments(photo);
+            if (photo == null) {
+                return null;
+            }
+        }
+        
+        int segment = appendToSegment(photoId, photo.getCommentCount() / segmentSize, comment);
+        
+        Photo updated;
+        try {
+            updated = blobStorageService.updateObject("photos", photoKey(photoId), Photo.class, current -> {
+                current.setCommentCount(current.getCommentCount() + 1);
+                List<Comment> preview = current.getComments();
+                preview.add(comment);
+                trimPreview(preview);
+                current.setUpdatedAt(LocalDateTime.now());
+                return true;
+            });
+        } catch (Exception e) {
+            removeFromSegment(photoId, segment, comment.getId());
+            throw e;
+        }
+        if (updated == null) {
+            removeFromSegment(photoId, segment, comment.getId());
+        }
+        return updated;
+    }
+    
+    /**
+     * Returns comments oldest first, starting at the cursor ("segment:offset").
+     */
+    public CommentPage getComments(Photo photo, String cursor, int limit) throws Exception {
+        if (isLegacy(photo)) {
+            return legacyPage(photo, cursor, limit);
+        }
+        
+        int[] position = decodeCursor(cursor);
+        int segment = position[0];
+        int offset = position[1];
+        List<Comment> comments = new ArrayList<>(limit);
+        
+        while (comments.size() < limit) {
+            CommentSegment current = blobStorageService.getObject(CONTAINER, segmentKey(photo.getId(), segment), CommentSegment.class);
+            if (current == null) {
+                return new CommentPage(comments, null, photo.getCommentCount());
+            }
+            List<Comment> segmentComments = current.getComments();
+            while (offset < segmentComments.size() && comments.size() < limit) {
+                comments.add(segmentComments.get(offset++));
+            }
+            if (offset >= segmentComments.size()) {
+                segment++;
+                offset = 0;
+            }
+        }
+        
+        // Mid-segment there is certainly more; at a segment boundary the count decides, unless a
+        // removed comment left a gap in an earlier segment and the next one already exists
+        boolean mayHaveMore = offset > 0 || (long) segment * segmentSize < photo.getCommentCount()
+                || blobStorageService.getObject(CONTAINER, segmentKey(photo.getId(), segment), CommentSegment.class) != null;
+        String nextCursor = mayHaveMore ? segment + ":" + offset : null;
+        return new CommentPage(comments, nextCursor, photo.getCommentCount());
+    }
+    
+    public void deleteComments(String photoId) {
+        blobStorageService.deleteObjects(CONTAINER, photoId + "/");
+    }
+    
+    // Photos written before comments were externalized hold every comment inline
+    private static boolean isLegacy(Photo photo) {
+        return photo.getCommentCount() < photo.getComments().size();
+    }
+    
+    private Photo migrateLegacyComments(Photo photo) throws Exception {
+        List<Comment> legacy = photo.getComments();
+        for (int start = 0, segment = 0; start < legacy.size(); start += segmentSize, segment++) {
+            List<Comment> chunk = legacy.subList(start, Math.min(start + segmentSize, legacy.size()));
+            try {
+                // Create-only, so a concurrent migration never overwrites newer appends
+                blobStorageService.saveObjectIfMatch(CONTAINER, segmentKey(photo.getId(), segment), new CommentSegment(chunk), null);
+            } catch (ConcurrentUpdateException e) {
+                // Already migrated by another request
+            }
+        }
+        
+        return blobStorageService.updateObject("photos", photoKey(photo.getId()), Photo.class, current -> {
+            if (!isLegacy(current)) {
+                return false;
+            }
+            current.setCommentCount(current.getComments().size());
+            trimPreview(current.getComments());
+            current.setUpdatedAt(LocalDateTime.now());
+            return true;
+        });
+    }
+    
+    /**
+     * Appends to the first segment from the given one that has room, and
+     * returns the segment the comment ended up in. Writers that started from
+     * a stale count skip segments that filled up meanwhile, and a comment
+     * already in a segment (a create that failed but had landed) is not
+     * added twice.
+     */
+    private int appendToSegment(String photoId, int segment, Comment comment) throws Exception {
+        while (true) {
+            String key = segmentKey(photoId, segment);
+            boolean[] present = new boolean[1];
+            CommentSegment updated = blobStorageService.updateObject(CONTAINER, key, CommentSegment.class, current -> {
+                present[0] = containsComment(current, comment.getId());
+                if (present[0] || current.getComments().size() >= segmentSize) {
+                    return false;
+                }
+                current.getComments().add(comment);
+                return true;
+            });
+            if (updated == null) {
+                try {
+                    blobStorageService.saveObjectIfMatch(CONTAINER, key, new CommentSegment(List.of(comment)), null);
+                    return segment;
+                } catch (ConcurrentUpdateException e) {
+                    // Another writer created the segment first; append to theirs
+                    continue;
+                }
+            }
+            if (present[0] || containsComment(updated, comment.getId())) {
+                return segment;
+            }
+            segment++;
+        }
+    }
+    
+    // Best effort: a comment left behind only shows up in listings, not in the count
+    private void removeFromSegment(String photoId, int segment, String commentId) {
+        try {
+            blobStorageService.updateObject(CONTAINER, segmentKey(photoId, segment), CommentSegment.class,
+                    current -> current.getComments().removeIf(c -> commentId.equals(c.getId())));
+        } catch (Exception e) {
+            log.warn("Could not remove comment {} from photo {} after a failed update", commentId, photoId, e);
+        }
+    }
+    
+    private static boolean containsComment(CommentSegment segment, String commentId) {
+        return segment.getComments().stream().anyMatch(c -> commentId.equals(c.getId()));
+    }
+    
+    private void trimPreview(List<Comment> preview) {
+        if (preview.size() > previewSize) {
+            preview.subList(0, preview.size() - previewSize).clear();
+        }
+    }
+    
+    private CommentPage legacyPage(Photo photo, String cursor, int limit) {
+        int offset = decodeCursor(cursor)[1];
+        List<Comment> all = photo.getComments();
+        int end = Math.min(all.size(), offset + limit);
+        List<Comment> comments = offset < end ? new ArrayList<>(all.subList(offset, end)) : new ArrayList<>();
+        String nextCursor = end < all.size() ? "0:" + end : null;
+        return new CommentPage(comments, nextCursor, all.size());
+    }
+    
+    private static int[] decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return new int[] {0, 0};
+        }
+        int sep = cursor.indexOf(':');
+        try {
+            int segment = Integer.parseInt(cursor.substring(0, sep));
+            int offset = Integer.parseInt(cursor.substring(sep + 1));
+            if (segment < 0 || offset < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return new int[] {segment, offset};
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+    
+    private static String photoKey(String photoId) {
+        return photoId + ".json";
+    }
+    
+    private static String segmentKey(String photoId, int segment) {
+        return String.format("%s/%06d.json", photoId, segment);
+    }
+    
+    public static class CommentPage {
+        private final List<Comment> comments;
+        private final String nextCursor;
+        private final int total;
+        
+        public CommentPage(List<Comment> comments, String nextCursor, int total) {
+            this.comments = comments;
+            this.nextCursor = nextCursor;
+            this.total = total;
+        }
+        
+        public List<Comment> getComments() { return comments; }
+        public String getNextCursor() { return nextCursor; }
+        public int getTotal() { return total; }
+    }
+}
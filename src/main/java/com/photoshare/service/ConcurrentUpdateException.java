@@ -0,0 +1,14 @@
+package com.photoshare.service;
+
+/**
+ * Thrown when a conditional save loses the race: the blob changed (or was
+ * created) since the ETag the caller read.
+ */
+public class ConcurrentUpdateException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public ConcurrentUpdateException(String containerName, String blobName) {
+        super("Concurrent update of " + containerName + "/" + blobName);
+    }
+}
@@ -0,0 +1,320 @@
+package com.photoshare.service;
+
+import com.photoshare.model.Photo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Accumulates likes and ratings in memory and writes them to the photo blobs
+ * in periodic batches, so a burst of clicks on one photo costs one blob
+ * rewrite per flush interval instead of one per click. A flush writes the
+ * dirty photos concurrently; a drained delta keeps counting in views until
+ * its stored write has been indexed.
+ */
+@Service
+public class EngagementAggregator {
+    
+    private static final Logger log = LoggerFactory.getLogger(EngagementAggregator.class);
+    
+    @Autowired
+    private BlobStorageService blobStorageService;
+    
+    @Autowired
+    private PhotoFeedIndex photoFeedIndex;
+    
+    @Value("${photoshare.engagement.flush-interval-ms:2000}")
+    private long flushIntervalMillis;
+    
+    @Value("${photoshare.engagement.flush-concurrency:16}")
+    private int flushConcurrency;
+    
+    private final ConcurrentHashMap<String, PendingEngagement> pending = new ConcurrentHashMap<>();
+    
+    private final LongAdder flushedPhotos = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private volatile long lastFlushDurationMillis;
+    // Pending deltas change response views before they reach the stored photos
+    private volatile long lastRecordedMillis = System.currentTimeMillis();
+    
+    private ScheduledExecutorService flushExecutor;
+    
+    @PostConstruct
+    public void start() {
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("engagement-flush-");
+        threadFactory.setDaemon(true);
+        flushExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        flushExecutor.scheduleWithFixedDelay(this::flushSafely,
+                flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        flushExecutor.shutdown();
+        try {
+            flushExecutor.awaitTermination(flushIntervalMillis * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        if (!pending.isEmpty()) {
+            log.warn("{} photos still had unflushed likes or ratings at shutdown", pending.size());
+        }
+    }
+    
+    /**
+     * Records a like. Returns false if the user already has a pending like on
+     * this photo; the caller checks the persisted likedBy list itself.
+     */
+    public boolean recordLike(String photoId, String userId) {
+        boolean[] added = new boolean[1];
+        // compute() runs under the bin lock, so a concurrent flush never drains half an update
+        pending.compute(photoId, (id, delta) -> {
+            PendingEngagement d = delta != null ? delta : new PendingEngagement();
+            // A like still being written back counts as pending too
+            added[0] = (d.inFlight == null || !d.inFlight.likedBy.contains(userId)) && d.likedBy.add(userId);
+            return d;
+        });
+        if (added[0]) {
+            lastRecordedMillis = System.currentTimeMillis();
+        }
+        return added[0];
+    }
+    
+    public void recordRating(String photoId, int rating) {
+        pending.compute(photoId, (id, delta) -> {
+            PendingEngagement d = delta != null ? delta : new PendingEngagement();
+            d.ratingSum.add(rating);
+            d.ratingCount.increment();
+            return d;
+        });
+        lastRecordedMillis = System.currentTimeMillis();
+    }
+    
+    public boolean hasPendingLike(String photoId, String userId) {
+        PendingEngagement delta = pending.get(photoId);
+        if (delta == null) {
+            return false;
+        }
+        PendingEngagement inFlight = delta.inFlight;
+        return delta.likedBy.contains(userId) || inFlight != null && inFlight.likedBy.contains(userId);
+    }
+    
+    /** When a like or rating was last recorded, for Last-Modified on views that include pending deltas. */
+    public long lastRecordedMillis() {
+        return lastRecordedMillis;
+    }
+    
+    /** Drops pending deltas for a photo that is being deleted. */
+    public void discard(String photoId) {
+        pending.remove(photoId);
+    }
+    
+    /**
+     * Returns the photo as it will look after the pending deltas are flushed.
+     * The stored instance is never modified; a copy is made only when needed.
+     */
+    public Photo applyPending(Photo photo) {
+        if (photo == null) {
+            return null;
+        }
+        PendingEngagement delta = pending.get(photo.getId());
+        if (delta == null) {
+            return photo;
+        }
+        PendingEngagement inFlight = delta.inFlight;
+        // Once the photo passed in is the written-back version, the drained delta is already in it
+        if (inFlight != null && inFlight.appliedAt != null && photo.getUpdatedAt() != null
+                && !photo.getUpdatedAt().isBefore(inFlight.appliedAt)) {
+            inFlight = null;
+        }
+        // The view shares likedBy with the stored photo, so only the counters change
+        Photo view = new Photo(photo);
+        int newLikes = 0;
+        for (String userId : delta.likedBy) {
+            if (!photo.getLikedBy().contains(userId)) {
+                newLikes++;
+            }
+        }
+        if (inFlight != null) {
+            for (String userId : inFlight.likedBy) {
+                if (!photo.getLikedBy().contains(userId) && !delta.likedBy.contains(userId)) {
+                    newLikes++;
+                }
+            }
+            applyRatings(view, inFlight);
+        }
+        view.setLikes(photo.getLikes() + newLikes);
+        applyRatings(view, delta);
+        return view;
+    }
+    
+    /**
+     * Writes every pending delta back, with at most flush-concurrency photo
+     * updates in flight, and returns once all of them have finished.
+     */
+    public void flush() {
+        long startedAt = System.nanoTime();
+        List<String> photoIds = new ArrayList<>();
+        List<Callable<Void>> writes = new ArrayList<>();
+        for (String photoId : pending.keySet()) {
+            PendingEngagement drained = drain(photoId);
+            if (drained != null) {
+                photoIds.add(photoId);
+                writes.add(() -> {
+                    writeBack(photoId, drained);
+                    return null;
+                });
+            }
+        }
+        if (writes.isEmpty()) {
+            return;
+        }
+        
+        try {
+            List<Future<Void>> results = blobStorageService.submitAll(writes, flushConcurrency);
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    results.get(i).get();
+                } catch (ExecutionException e) {
+                    log.warn("Engagement write-back for photo {} failed", photoIds.get(i), e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lastFlushDurationMillis = (System.nanoTime() - startedAt) / 1_000_000;
+    }
+    
+    /**
+     * Moves the photo's open delta to in-flight, leaving a fresh open delta for
+     * new likes and ratings. Both stay in the same map entry, so views never
+     * miss the drained part. Returns null if there is nothing to write.
+     */
+    private PendingEngagement drain(String photoId) {
+        PendingEngagement[] drained = new PendingEngagement[1];
+        pending.computeIfPresent(photoId, (id, delta) -> {
+            if (delta.inFlight != null || delta.isEmpty()) {
+                return delta;
+            }
+            PendingEngagement next = new PendingEngagement();
+            next.inFlight = delta;
+            drained[0] = delta;
+            return next;
+        });
+        return drained[0];
+    }
+    
+    private void writeBack(String photoId, PendingEngagement drained) {
+        try {
+            Photo photo = blobStorageService.updateObject("photos", photoId + ".json", Photo.class, current -> {
+                apply(current, drained);
+                return true;
+            });
+            if (photo != null) {
+                drained.appliedAt = photo.getUpdatedAt();
+                photoFeedIndex.put(photo);
+                flushedPhotos.increment();
+            }
+            settle(photoId, drained, false);
+        } catch (Exception e) {
+            failedFlushes.increment();
+            log.warn("Failed to flush engagement for photo {}, will retry", photoId, e);
+            settle(photoId, drained, true);
+        }
+    }
+    
+    // Retires the in-flight delta once indexed, or folds it back into the open one to retry
+    private void settle(String photoId, PendingEngagement drained, boolean retry) {
+        pending.computeIfPresent(photoId, (id, delta) -> {
+            if (delta.inFlight != drained) {
+                return delta;
+            }
+            delta.inFlight = null;
+            if (retry) {
+                delta.mergeFrom(drained);
+            }
+            return delta.isEmpty() ? null : delta;
+        });
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendingPhotos", pending.size());
+        stats.put("flushedPhotos", flushedPhotos.sum());
+        stats.put("failedFlushes", failedFlushes.sum());
+        stats.put("flushIntervalMs", flushIntervalMillis);
+        stats.put("flushConcurrency", flushConcurrency);
+        stats.put("lastFlushDurationMs", lastFlushDurationMillis);
+        return stats;
+    }
+    
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Engagement flush failed", e);
+        }
+    }
+    
+    private static void apply(Photo photo, PendingEngagement delta) {
+        for (String userId : delta.likedBy) {
+            if (photo.getLikedBy().add(userId)) {
+                photo.setLikes(photo.getLikes() + 1);
+            }
+        }
+        applyRatings(photo, delta);
+        photo.setUpdatedAt(LocalDateTime.now());
+    }
+    
+    private static void applyRatings(Photo photo, PendingEngagement delta) {
+        long count = delta.ratingCount.sum();
+        if (count > 0) {
+            int newRatingCount = photo.getRatingCount() + (int) count;
+            double newRating = ((photo.getRating() * photo.getRatingCount()) + delta.ratingSum.sum()) / newRatingCount;
+            photo.setRating(newRating);
+            photo.setRatingCount(newRatingCount);
+        }
+    }
+    
+    private static final class PendingEngagement {
+        private final Set<String> likedBy = ConcurrentHashMap.newKeySet();
+        private final LongAdder ratingSum = new LongAdder();
+        private final LongAdder ratingCount = new LongAdder();
+        // Drained delta being written back; replaced only under the map entry's lock
+        private volatile PendingEngagement inFlight;
+        // updatedAt of the stored photo that includes this delta, once written
+        private volatile LocalDateTime appliedAt;
+        
+        boolean isEmpty() {
+            return likedBy.isEmpty() && ratingCount.sum() == 0;
+        }
+        
+        PendingEngagement mergeFrom(PendingEngagement other) {
+            likedBy.addAll(other.likedBy);
+            ratingSum.add(other.ratingSum.sum());
+            ratingCount.add(other.ratingCount.sum());
+            return this;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.photoshare.service;
+
+import com.photoshare.model.Photo;
+
+/**
+ * Receives every change made to the {@link PhotoFeedIndex} after startup,
+ * whichever caller made it, so derived indexes stay in step with the feed.
+ * Called on the thread that made the change; implementations must be quick
+ * and must not throw.
+ */
+public interface FeedIndexListener {
+    
+    default void photoPut(Photo photo) {
+    }
+    
+    default void photoRemoved(String photoId) {
+    }
+}
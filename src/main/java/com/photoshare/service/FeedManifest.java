@@ -0,0 +1,509 @@
+package com.photoshare.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.photoshare.model.Photo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A compacted copy of every photo document in the "manifest" container, so a
+ * starting instance loads the feed with a few large reads instead of listing
+ * and downloading each photo blob.
+ *
+ * current.json names the generation and its segments, which hold
+ * newline-delimited photo documents under gen-{g}/. Each instance appends its
+ * changes in batches as gen-{g}/delta-{millis}-{instance}-{seq}.ndjson, and
+ * loading replays the deltas in name (time) order over the segments. While
+ * running, each instance polls for the other instances' deltas and applies
+ * them to its feed, so writes show up everywhere within a poll interval.
+ *
+ * Compaction folds segments and deltas into generation g+1 and swaps
+ * current.json with if-match, so one instance wins. Generation g is kept and
+ * its deltas written after the fold are still replayed, for writers that had
+ * not yet seen the swap; generation g-1 is deleted.
+ */
+@Service
+public class FeedManifest {
+    
+    private static final Logger log = LoggerFactory.getLogger(FeedManifest.class);
+    
+    static final String CONTAINER = "manifest";
+    private static final String POINTER = "current.json";
+    private static final String NDJSON = "application/x-ndjson";
+    
+    @Autowired
+    private BlobStorageService blobStorageService;
+    
+    @Value("${photoshare.manifest.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${photoshare.manifest.segment-size:5000}")
+    private int segmentSize;
+    
+    @Value("${photoshare.manifest.read-concurrency:8}")
+    private int readConcurrency;
+    
+    @Value("${photoshare.manifest.flush-interval-ms:2000}")
+    private long flushIntervalMillis;
+    
+    @Value("${photoshare.manifest.poll-interval-ms:5000}")
+    private long pollIntervalMillis;
+    
+    @Value("${photoshare.manifest.compact-after-deltas:100}")
+    private int compactAfterDeltas;
+    
+    @Value("${photoshare.manifest.compact-check-interval-ms:300000}")
+    private long compactCheckIntervalMillis;
+    
+    // Always JSON: segments and deltas are line-delimited
+    private final DocumentCodec codec = new DocumentCodec(DocumentCodec.Format.JSON);
+    private final String instanceId = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong deltaSequence = new AtomicLong();
+    
+    // Latest unwritten change per photo id
+    private final ConcurrentHashMap<String, Entry> pending = new ConcurrentHashMap<>();
+    // Deltas already reflected in this instance's feed, pruned to the generations still listed.
+    // A set rather than the last name seen: a delta named earlier can become visible later.
+    private final Set<String> appliedDeltas = ConcurrentHashMap.newKeySet();
+    private volatile int polledGeneration = -1;
+    
+    private final LongAdder deltasWritten = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder compactions = new LongAdder();
+    private final LongAdder remoteDeltasApplied = new LongAdder();
+    private volatile int loadedGeneration;
+    private volatile long loadMillis = -1;
+    
+    private ScheduledExecutorService executor;
+    
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("feed-manifest-");
+        threadFactory.setDaemon(true);
+        executor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        executor.scheduleWithFixedDelay(this::flushSafely,
+                flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::compactSafely,
+                compactCheckIntervalMillis, compactCheckIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(flushIntervalMillis * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushSafely();
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    /** Returns every photo in the manifest, or null if no manifest has been written yet. */
+    public Collection<Photo> load() throws Exception {
+        if (!enabled) {
+            return null;
+        }
+        long start = System.nanoTime();
+        Pointer pointer = blobStorageService.getObject(CONTAINER, POINTER, Pointer.class);
+        if (pointer == null) {
+            return null;
+        }
+        List<String> deltas = unmergedDeltas(pointer);
+        Map<String, Photo> photos = read(pointer, deltas);
+        appliedDeltas.addAll(pointer.getMergedDeltas());
+        appliedDeltas.addAll(deltas);
+        polledGeneration = pointer.getGeneration();
+        loadedGeneration = pointer.getGeneration();
+        loadMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Feed manifest generation {} loaded: {} photos from {} segments and {} deltas in {} ms",
+                pointer.getGeneration(), photos.size(), pointer.getSegments().size(), deltas.size(), loadMillis);
+        return photos.values();
+    }
+    
+    /**
+     * Writes the first generation from a full container listing, unless
+     * another instance already has. Deltas written before the listing started
+     * are covered by it and are not replayed over it.
+     */
+    public void bootstrap(Collection<Photo> photos, long listingStartedMillis) throws Exception {
+        if (!enabled) {
+            return;
+        }
+        List<String> covered = new ArrayList<>();
+        for (String delta : blobStorageService.listBlobNames(CONTAINER, prefix(0) + "delta-")) {
+            if (deltaMillis(delta) < listingStartedMillis) {
+                covered.add(delta);
+            }
+        }
+        if (writeGeneration(null, photos, covered)) {
+            log.info("Feed manifest created with {} photos", photos.size());
+        }
+    }
+    
+    /**
+     * Starts handing other instances' changes to the consumer, in delta name
+     * order, every poll interval. Called once the feed is loaded.
+     */
+    public void tail(Consumer<Entry> consumer) {
+        if (!enabled) {
+            return;
+        }
+        executor.scheduleWithFixedDelay(() -> pollSafely(consumer),
+                pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    public void recordPut(Photo photo) {
+        if (enabled) {
+            pending.put(photo.getId(), new Entry(photo.getId(), photo));
+        }
+    }
+    
+    public void recordRemove(String id) {
+        if (enabled) {
+            pending.put(id, new Entry(id, null));
+        }
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("loadedGeneration", loadedGeneration);
+        stats.put("loadMs", loadMillis);
+        stats.put("pendingChanges", pending.size());
+        stats.put("deltasWritten", deltasWritten.sum());
+        stats.put("failedFlushes", failedFlushes.sum());
+        stats.put("compactions", compactions.sum());
+        stats.put("remoteDeltasApplied", remoteDeltasApplied.sum());
+        return stats;
+    }
+    
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (Exception e) {
+            failedFlushes.increment();
+            log.warn("Feed manifest delta could not be written, will retry", e);
+        }
+    }
+    
+    void flush() throws Exception {
+        List<Entry> entries = new ArrayList<>();
+        for (Map.Entry<String, Entry> change : pending.entrySet()) {
+            if (pending.remove(change.getKey(), change.getValue())) {
+                entries.add(change.getValue());
+            }
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        try {
+            // A cached pointer may be one generation behind; loaders still replay that generation
+            Pointer pointer = blobStorageService.getObject(CONTAINER, POINTER, Pointer.class);
+            int generation = pointer != null ? pointer.getGeneration() : 0;
+            String name = prefix(generation) + String.format("delta-%013d-%s-%06d.ndjson",
+                    System.currentTimeMillis(), instanceId, deltaSequence.incrementAndGet());
+            blobStorageService.writeBlob(CONTAINER, name, codec.encodeLines(entries), NDJSON);
+            deltasWritten.increment();
+        } catch (Exception e) {
+            // Put the changes back unless a newer one for the same photo arrived meanwhile
+            for (Entry entry : entries) {
+                pending.putIfAbsent(entry.getId(), entry);
+            }
+            throw e;
+        }
+    }
+    
+    private void pollSafely(Consumer<Entry> consumer) {
+        try {
+            poll(consumer);
+        } catch (Exception e) {
+            log.warn("Feed manifest deltas of other instances could not be read, will retry", e);
+        }
+    }
+    
+    void poll(Consumer<Entry> consumer) throws Exception {
+        Pointer pointer = blobStorageService.getObject(CONTAINER, POINTER, Pointer.class);
+        if (pointer == null) {
+            return;
+        }
+        List<String> candidates = unmergedDeltas(pointer);
+        if (polledGeneration == pointer.getPreviousGeneration()) {
+            // Compacted since the last poll: folded deltas may not have been applied here yet
+            candidates.addAll(pointer.getMergedDeltas());
+            candidates.sort(Comparator.comparing(FeedManifest::fileName));
+        }
+        String own = "-" + instanceId + "-";
+        List<String> unseen = new ArrayList<>();
+        for (String delta : candidates) {
+            if (!appliedDeltas.contains(delta) && !fileName(delta).contains(own)) {
+                unseen.add(delta);
+            }
+        }
+        
+        List<Callable<byte[]>> reads = new ArrayList<>();
+        for (String delta : unseen) {
+            reads.add(() -> blobStorageService.readBlob(CONTAINER, delta));
+        }
+        List<Future<byte[]>> results = blobStorageService.submitAll(reads, readConcurrency);
+        for (int i = 0; i < unseen.size(); i++) {
+            byte[] data = await(results.get(i));
+            // Null when deleted with an old generation; its changes are in the current segments
+            if (data != null) {
+                for (Entry entry : codec.decodeLines(data, Entry.class)) {
+                    consumer.accept(entry);
+                }
+                remoteDeltasApplied.increment();
+            }
+            appliedDeltas.add(unseen.get(i));
+        }
+        
+        String current = prefix(pointer.getGeneration());
+        String previous = prefix(pointer.getPreviousGeneration());
+        appliedDeltas.removeIf(name -> !name.startsWith(current) && !name.startsWith(previous));
+        polledGeneration = pointer.getGeneration();
+    }
+    
+    private void compactSafely() {
+        try {
+            compactIfNeeded();
+        } catch (Exception e) {
+            log.warn("Feed manifest compaction failed", e);
+        }
+    }
+    
+    void compactIfNeeded() throws Exception {
+        Versioned<Pointer> current = blobStorageService.getVersionedObject(CONTAINER, POINTER, Pointer.class);
+        if (current == null) {
+            return;
+        }
+        Pointer pointer = current.getValue();
+        List<String> deltas = unmergedDeltas(pointer);
+        if (deltas.size() < compactAfterDeltas) {
+            return;
+        }
+        
+        long start = System.nanoTime();
+        Map<String, Photo> photos = read(pointer, deltas);
+        List<String> merged = new ArrayList<>();
+        for (String delta : deltas) {
+            if (delta.startsWith(prefix(pointer.getGeneration()))) {
+                merged.add(delta);
+            }
+        }
+        if (!writeGeneration(current, photos.values(), merged)) {
+            return;
+        }
+        compactions.increment();
+        // Everything in the previous generation is now folded in
+        blobStorageService.deleteObjects(CONTAINER, prefix(pointer.getPreviousGeneration()));
+        log.info("Feed manifest compacted {} deltas into generation {} ({} photos) in {} ms",
+                deltas.size(), pointer.getGeneration() + 1, photos.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    /**
+     * Writes the photos as a new generation and swaps the pointer to it.
+     * Returns false, after removing its segments, if another instance swapped first.
+     */
+    private boolean writeGeneration(Versioned<Pointer> current, Collection<Photo> photos, List<String> mergedDeltas)
+            throws Exception {
+        int generation = current != null ? current.getValue().getGeneration() + 1 : 1;
+        // Unique per attempt, so two instances compacting at once never overwrite each other's segments
+        String attempt = UUID.randomUUID().toString().substring(0, 8);
+        
+        List<Photo> ordered = new ArrayList<>(photos);
+        List<String> segments = new ArrayList<>();
+        List<Callable<Void>> writes = new ArrayList<>();
+        for (int from = 0; from < ordered.size(); from += segmentSize) {
+            List<Photo> chunk = ordered.subList(from, Math.min(ordered.size(), from + segmentSize));
+            String name = prefix(generation) + "segment-" + attempt + "-" + segments.size() + ".ndjson";
+            segments.add(name);
+            writes.add(() -> {
+                blobStorageService.writeBlob(CONTAINER, name, codec.encodeLines(chunk), NDJSON);
+                return null;
+            });
+        }
+        for (Future<Void> write : blobStorageService.submitAll(writes, readConcurrency)) {
+            await(write);
+        }
+        
+        Pointer next = new Pointer();
+        next.setGeneration(generation);
+        next.setSegments(segments);
+        next.setPreviousGeneration(current != null ? current.getValue().getGeneration() : 0);
+        next.setMergedDeltas(mergedDeltas);
+        next.setPhotoCount(ordered.size());
+        next.setCompactedAt(LocalDateTime.now());
+        try {
+            blobStorageService.saveObjectIfMatch(CONTAINER, POINTER, next, current != null ? current.getEtag() : null);
+            return true;
+        } catch (ConcurrentUpdateException e) {
+            for (String segment : segments) {
+                blobStorageService.deleteObject(CONTAINER, segment);
+            }
+            return false;
+        }
+    }
+    
+    /** Deltas of the previous generation not folded into the segments, then the current generation's. */
+    private List<String> unmergedDeltas(Pointer pointer) {
+        Set<String> merged = new HashSet<>(pointer.getMergedDeltas());
+        List<String> deltas = new ArrayList<>();
+        for (String delta : blobStorageService.listBlobNames(CONTAINER, prefix(pointer.getPreviousGeneration()) + "delta-")) {
+            if (!merged.contains(delta)) {
+                deltas.add(delta);
+            }
+        }
+        deltas.addAll(blobStorageService.listBlobNames(CONTAINER, prefix(pointer.getGeneration()) + "delta-"));
+        // Names start with the write time, so this is replay order across generations and instances
+        deltas.sort(Comparator.comparing(FeedManifest::fileName));
+        return deltas;
+    }
+    
+    private Map<String, Photo> read(Pointer pointer, List<String> deltas) throws Exception {
+        List<Callable<List<Photo>>> segmentReads = new ArrayList<>();
+        for (String segment : pointer.getSegments()) {
+            segmentReads.add(() -> codec.decodeLines(readRequired(segment), Photo.class));
+        }
+        List<Callable<List<Entry>>> deltaReads = new ArrayList<>();
+        for (String delta : deltas) {
+            deltaReads.add(() -> codec.decodeLines(readRequired(delta), Entry.class));
+        }
+        List<Future<List<Photo>>> segmentResults = blobStorageService.submitAll(segmentReads, readConcurrency);
+        List<Future<List<Entry>>> deltaResults = blobStorageService.submitAll(deltaReads, readConcurrency);
+        
+        Map<String, Photo> photos = new LinkedHashMap<>(Math.max(16, pointer.getPhotoCount() * 4 / 3));
+        for (Future<List<Photo>> segment : segmentResults) {
+            for (Photo photo : await(segment)) {
+                photos.put(photo.getId(), photo);
+            }
+        }
+        for (Future<List<Entry>> delta : deltaResults) {
+            for (Entry entry : await(delta)) {
+                if (entry.getPhoto() != null) {
+                    photos.put(entry.getId(), entry.getPhoto());
+                } else {
+                    photos.remove(entry.getId());
+                }
+            }
+        }
+        return photos;
+    }
+    
+    private byte[] readRequired(String blobName) {
+        byte[] data = blobStorageService.readBlob(CONTAINER, blobName);
+        if (data == null) {
+            throw new IllegalStateException("Feed manifest blob missing: " + blobName);
+        }
+        return data;
+    }
+    
+    private static <T> T await(Future<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+    
+    private static String prefix(int generation) {
+        return "gen-" + generation + "/";
+    }
+    
+    private static String fileName(String blobName) {
+        return blobName.substring(blobName.lastIndexOf('/') + 1);
+    }
+    
+    private static long deltaMillis(String blobName) {
+        String name = fileName(blobName);
+        try {
+            return Long.parseLong(name.substring("delta-".length(), "delta-".length() + 13));
+        } catch (RuntimeException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+    
+    /** The manifest's root document, current.json. */
+    public static class Pointer {
+        private int generation;
+        private List<String> segments = new ArrayList<>();
+        private int previousGeneration;
+        private List<String> mergedDeltas = new ArrayList<>();
+        private int photoCount;
+        private LocalDateTime compactedAt;
+        
+        public int getGeneration() { return generation; }
+        public void setGeneration(int generation) { this.generation = generation; }
+        
+        public List<String> getSegments() { return segments; }
+        public void setSegments(List<String> segments) { this.segments = segments; }
+        
+        public int getPreviousGeneration() { return previousGeneration; }
+        public void setPreviousGeneration(int previousGeneration) { this.previousGeneration = previousGeneration; }
+        
+        public List<String> getMergedDeltas() { return mergedDeltas; }
+        public void setMergedDeltas(List<String> mergedDeltas) { this.mergedDeltas = mergedDeltas; }
+        
+        public int getPhotoCount() { return photoCount; }
+        public void setPhotoCount(int photoCount) { this.photoCount = photoCount; }
+        
+        public LocalDateTime getCompactedAt() { return compactedAt; }
+        public void setCompactedAt(LocalDateTime compactedAt) { this.compactedAt = compactedAt; }
+    }
+    
+    /** One line of a delta: the photo as saved, or no photo for a removal. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Entry {
+        private String id;
+        private Photo photo;
+        
+        public Entry() {}
+        
+        Entry(String id, Photo photo) {
+            this.id = id;
+            this.photo = photo;
+        }
+        
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+        
+        public Photo getPhoto() { return photo; }
+        public void setPhoto(Photo photo) { this.photo = photo; }
+    }
+}
@@ -0,0 +1,215 @@
+package com.photoshare.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded LRU cache of image blobs on local disk. Concurrent misses for the
+ * same blob share one download; files are written under a temporary name and
+ * moved into place, so readers never see a partial image.
+ *
+ * A returned file may still be opened by path after the handler returns
+ * (Tomcat's sendfile), so evicted files are not deleted at once: they stay
+ * on disk for a grace period, and every download gets a fresh file name so
+ * a retired path is never reused.
+ */
+@Service
+public class ImageDiskCache {
+    
+    private static final Logger log = LoggerFactory.getLogger(ImageDiskCache.class);
+    
+    private static final Pattern CACHE_FILE = Pattern.compile("[0-9a-f]{64}-[0-9]+");
+    
+    @Autowired
+    private BlobStorageService blobStorageService;
+    
+    @Value("${photoshare.image-cache.dir:${java.io.tmpdir}/photoshare-image-cache}")
+    private String directory;
+    
+    @Value("${photoshare.image-cache.max-size:1GB}")
+    private DataSize maxSize;
+    
+    @Value("${photoshare.image-cache.eviction-grace-ms:30000}")
+    private long evictionGraceMillis;
+    
+    private Path root;
+    private final LinkedHashMap<String, ImageFile> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    // Evicted files awaiting deletion, oldest first; guarded by entries
+    private final ArrayDeque<Retired> retired = new ArrayDeque<>();
+    private final AtomicLong fileSequence = new AtomicLong();
+    private final Map<String, CompletableFuture<ImageFile>> loading = new ConcurrentHashMap<>();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(directory);
+        Files.createDirectories(root);
+        // Entries are tracked in memory only, so whatever a previous run left behind is stale.
+        // Only our own files are removed in case the directory is shared.
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(root)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (CACHE_FILE.matcher(name).matches() || name.startsWith("download-")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+    
+    /** Returns the cached file for the blob, downloading it on a miss; null if the blob does not exist. */
+    public ImageFile get(String blobName) throws Exception {
+        synchronized (entries) {
+            ImageFile cached = entries.get(blobName);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        
+        CompletableFuture<ImageFile> mine = new CompletableFuture<>();
+        CompletableFuture<ImageFile> existing = loading.putIfAbsent(blobName, mine);
+        if (existing != null) {
+            return await(existing);
+        }
+        
+        misses.increment();
+        try {
+            ImageFile file = load(blobName);
+            mine.complete(file);
+            return file;
+        } catch (Exception e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(blobName);
+        }
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+            stats.put("bytes", totalBytes);
+            stats.put("retired", retired.size());
+        }
+        stats.put("maxBytes", maxSize.toBytes());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+    
+    private ImageFile load(String blobName) throws IOException {
+        Path target = root.resolve(fileName(blobName) + "-" + fileSequence.incrementAndGet());
+        Path temp = Files.createTempFile(root, "download-", ".tmp");
+        try {
+            ImageFile downloaded = blobStorageService.downloadImageToFile(blobName, temp);
+            if (downloaded == null) {
+                return null;
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            ImageFile file = new ImageFile(target, Files.size(target), downloaded.getEtag(), downloaded.getContentType());
+            admit(blobName, file);
+            return file;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    private void admit(String blobName, ImageFile file) {
+        synchronized (entries) {
+            long now = System.nanoTime();
+            deleteRetired(now);
+            ImageFile previous = entries.put(blobName, file);
+            if (previous != null) {
+                totalBytes -= previous.getLength();
+                retired.add(new Retired(previous.getPath(), now));
+            }
+            totalBytes += file.getLength();
+            
+            Iterator<Map.Entry<String, ImageFile>> it = entries.entrySet().iterator();
+            while (totalBytes > maxSize.toBytes() && it.hasNext()) {
+                Map.Entry<String, ImageFile> eldest = it.next();
+                if (eldest.getKey().equals(blobName)) {
+                    continue;
+                }
+                it.remove();
+                totalBytes -= eldest.getValue().getLength();
+                evictions.increment();
+                retired.add(new Retired(eldest.getValue().getPath(), now));
+            }
+        }
+    }
+    
+    // Caller holds the entries lock
+    private void deleteRetired(long now) {
+        long grace = TimeUnit.MILLISECONDS.toNanos(evictionGraceMillis);
+        while (!retired.isEmpty() && now - retired.peek().retiredAt >= grace) {
+            Path path = retired.poll().path;
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Could not delete evicted image {}", path, e);
+            }
+        }
+    }
+    
+    private static ImageFile await(CompletableFuture<ImageFile> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+    
+    private static final class Retired {
+        private final Path path;
+        private final long retiredAt;
+        
+        Retired(Path path, long retiredAt) {
+            this.path = path;
+            this.retiredAt = retiredAt;
+        }
+    }
+    
+    // Blob names come from the URL, so never use them as file names directly
+    private static String fileName(String blobName) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(blobName.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
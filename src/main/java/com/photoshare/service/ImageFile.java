@@ -0,0 +1,25 @@
+package com.photoshare.service;
+
+import java.nio.file.Path;
+
+/**
+ * An image blob materialized on local disk, with the metadata needed to serve it.
+ */
+public class ImageFile {
+    private final Path path;
+    private final long length;
+    private final String etag;
+    private final String contentType;
+    
+    public ImageFile(Path path, long length, String etag, String contentType) {
+        this.path = path;
+        this.length = length;
+        this.etag = etag;
+        this.contentType = contentType;
+    }
+    
+    public Path getPath() { return path; }
+    public long getLength() { return length; }
+    public String getEtag() { return etag; }
+    public String getContentType() { return contentType; }
+}
@@ -0,0 +1,95 @@
+package com.photoshare.service;
+
+import com.photoshare.model.ImageReferences;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks which photos use each content-addressed image, with one document
+ * per image in the "imagerefs" container.
+ *
+ * A reference is added before its photo is saved and removed after the
+ * photo is deleted, so a count can be too high but never too low. Images
+ * whose last reference goes are counted but left in place. Deleting them
+ * safely would need a conditional delete, so that a concurrent upload of
+ * the same content cannot race it.
+ */
+@Service
+public class ImageReferenceIndex {
+    
+    private static final Logger log = LoggerFactory.getLogger(ImageReferenceIndex.class);
+    private static final String CONTAINER = "imagerefs";
+    
+    @Autowired
+    private BlobStorageService blobStorageService;
+    
+    private final LongAdder added = new LongAdder();
+    private final LongAdder removed = new LongAdder();
+    private final LongAdder unreferenced = new LongAdder();
+    
+    /** Records that the photo uses the image; returns the other photos that already did. */
+    public List<String> addReference(String imageBlobName, String photoId) throws Exception {
+        String key = imageBlobName + ".json";
+        List<String> others = new ArrayList<>();
+        while (true) {
+            ImageReferences updated = blobStorageService.updateObject(CONTAINER, key, ImageReferences.class, current -> {
+                others.clear();
+                others.addAll(current.getPhotoIds());
+                others.remove(photoId);
+                return !current.getPhotoIds().contains(photoId) && current.getPhotoIds().add(photoId);
+            });
+            if (updated != null) {
+                added.increment();
+                return others;
+            }
+            try {
+                blobStorageService.saveObjectIfMatch(CONTAINER, key, new ImageReferences(List.of(photoId)), null);
+                added.increment();
+                return List.of();
+            } catch (ConcurrentUpdateException e) {
+                // Another upload of the same image created the document first; add to theirs
+            }
+        }
+    }
+    
+    public void removeReference(String imageBlobName, String photoId) throws Exception {
+        ImageReferences updated = blobStorageService.updateObject(CONTAINER, imageBlobName + ".json",
+                ImageReferences.class, current -> current.getPhotoIds().remove(photoId));
+        if (updated == null) {
+            return;
+        }
+        removed.increment();
+        if (updated.getPhotoIds().isEmpty()) {
+            unreferenced.increment();
+            log.info("Image {} is no longer used by any photo", imageBlobName);
+        }
+    }
+    
+    /**
+     * The content-addressed image blob a photo URL points at, or null for
+     * external URLs and images uploaded before content addressing.
+     */
+    public static String imageBlobName(String url) {
+        if (url == null) {
+            return null;
+        }
+        String name = url.substring(url.lastIndexOf('/') + 1);
+        return BlobStorageService.isContentAddressed(name) ? name : null;
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("referencesAdded", added.sum());
+        stats.put("referencesRemoved", removed.sum());
+        stats.put("unreferencedImages", unreferenced.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,355 @@
+package com.photoshare.service;
+
+import com.photoshare.model.Photo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory index of photo documents ordered newest first, so feed pages are
+ * served without listing and downloading the whole "photos" container.
+ * At startup it loads from the {@link FeedManifest} when one exists and
+ * falls back to a full listing otherwise. Once loaded it also applies the
+ * changes other instances record in the manifest. Changes after loading are
+ * passed on to the registered {@link FeedIndexListener}s.
+ */
+@Service
+public class PhotoFeedIndex {
+    
+    private static final Logger log = LoggerFactory.getLogger(PhotoFeedIndex.class);
+    
+    @Autowired
+    private BlobStorageService blobStorageService;
+    
+    @Autowired
+    private FeedManifest feedManifest;
+    
+    @Value("${photoshare.feed.load-concurrency:64}")
+    private int loadConcurrency;
+    
+    private final ConcurrentSkipListMap<FeedKey, Photo> feed = new ConcurrentSkipListMap<>();
+    private final Map<String, FeedKey> keysById = new ConcurrentHashMap<>();
+    private final ReentrantLock loadLock = new ReentrantLock();
+    private final List<FeedIndexListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean loaded;
+    private volatile long lastModifiedMillis = System.currentTimeMillis();
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            ensureLoaded();
+        } catch (Exception e) {
+            log.warn("Photo feed index could not be loaded at startup, will retry on first request", e);
+        }
+    }
+    
+    public void ensureLoaded() throws Exception {
+        if (loaded) {
+            return;
+        }
+        // A lock rather than synchronized: waiting virtual threads must not pin their carriers
+        loadLock.lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            Collection<Photo> photos = loadManifest();
+            if (photos != null) {
+                photos.forEach(this::index);
+                loaded = true;
+                feedManifest.tail(this::applyRemote);
+                // The manifest can miss changes made while no instance was running
+                Thread.ofPlatform().daemon().name("feed-verify").start(this::verifySafely);
+                return;
+            }
+            
+            long listingStarted = System.currentTimeMillis();
+            BulkFetchResult<Photo> result = blobStorageService.listObjects("photos", Photo.class, loadConcurrency);
+            for (Photo photo : result.getObjects()) {
+                index(photo);
+            }
+            loaded = true;
+            feedManifest.tail(this::applyRemote);
+            log.info("Photo feed index loaded with {} photos in {} ms ({} unreadable)",
+                    feed.size(), result.getElapsedMillis(), result.getFailures().size());
+            if (feedManifest.isEnabled() && !result.hasFailures()) {
+                Thread.ofPlatform().daemon().name("feed-manifest-bootstrap")
+                        .start(() -> bootstrapSafely(result.getObjects(), listingStarted));
+            }
+        } finally {
+            loadLock.unlock();
+        }
+    }
+    
+    private Collection<Photo> loadManifest() {
+        try {
+            return feedManifest.load();
+        } catch (Exception e) {
+            log.warn("Feed manifest could not be read, falling back to listing the photos container", e);
+            return null;
+        }
+    }
+    
+    private void bootstrapSafely(List<Photo> photos, long listingStarted) {
+        try {
+            feedManifest.bootstrap(photos, listingStarted);
+        } catch (Exception e) {
+            log.warn("Feed manifest could not be created", e);
+        }
+    }
+    
+    private void verifySafely() {
+        try {
+            verifyAgainstStorage();
+        } catch (Exception e) {
+            log.warn("Photo feed index could not be verified against storage", e);
+        }
+    }
+    
+    /**
+     * Reconciles the index with the "photos" container listing: photos missing
+     * from the index are downloaded and added, indexed photos whose blob is gone
+     * are dropped. Only photos indexed before the listing can be dropped, so an
+     * upload that lands meanwhile is never lost. Corrections go to the manifest too.
+     */
+    void verifyAgainstStorage() throws Exception {
+        long start = System.nanoTime();
+        Set<String> indexed = new HashSet<>(keysById.keySet());
+        Set<String> stored = new HashSet<>();
+        for (String blobName : blobStorageService.listBlobNames("photos", null)) {
+            if (blobName.endsWith(".json")) {
+                stored.add(blobName.substring(0, blobName.length() - ".json".length()));
+            }
+        }
+        
+        List<String> missing = new ArrayList<>();
+        for (String id : stored) {
+            if (!keysById.containsKey(id)) {
+                missing.add(id + ".json");
+            }
+        }
+        int added = 0;
+        if (!missing.isEmpty()) {
+            BatchFetchResult<Photo> result = blobStorageService.getObjects("photos", missing, Photo.class, loadConcurrency);
+            for (Photo photo : result.getObjects().values()) {
+                if (photo != null && !keysById.containsKey(photo.getId())) {
+                    put(photo);
+                    added++;
+                }
+            }
+        }
+        
+        int removed = 0;
+        for (String id : indexed) {
+            if (!stored.contains(id)) {
+                remove(id);
+                removed++;
+            }
+        }
+        log.info("Photo feed index verified against {} stored photos in {} ms: {} added, {} removed",
+                stored.size(), (System.nanoTime() - start) / 1_000_000, added, removed);
+    }
+    
+    /** Registered by the dependent indexes themselves, since they already depend on this one. */
+    public void addListener(FeedIndexListener listener) {
+        listeners.add(listener);
+    }
+    
+    public boolean isLoaded() {
+        return loaded;
+    }
+    
+    public int size() {
+        return feed.size();
+    }
+    
+    /**
+     * When the feed last gained, changed or lost a photo. Removals leave no
+     * timestamp on any remaining photo, so feed Last-Modified comes from here.
+     */
+    public long lastModifiedMillis() {
+        return lastModifiedMillis;
+    }
+    
+    /** Adds or replaces a photo after it was saved, and records the change in the feed manifest. */
+    public void put(Photo photo) {
+        if (photo == null || photo.getId() == null) {
+            return;
+        }
+        apply(photo);
+        feedManifest.recordPut(photo);
+    }
+    
+    public void remove(String id) {
+        unapply(id);
+        feedManifest.recordRemove(id);
+    }
+    
+    // Another instance's change: applied and passed on, but not recorded in the manifest again
+    private void applyRemote(FeedManifest.Entry entry) {
+        Photo incoming = entry.getPhoto();
+        if (incoming == null) {
+            unapply(entry.getId());
+            return;
+        }
+        // A delta can arrive after a newer local save of the same photo
+        Photo current = get(incoming.getId());
+        if (current != null && current.getUpdatedAt() != null && incoming.getUpdatedAt() != null
+                && current.getUpdatedAt().isAfter(incoming.getUpdatedAt())) {
+            return;
+        }
+        apply(incoming);
+    }
+    
+    private void apply(Photo photo) {
+        index(photo);
+        for (FeedIndexListener listener : listeners) {
+            listener.photoPut(photo);
+        }
+    }
+    
+    private void unapply(String id) {
+        keysById.computeIfPresent(id, (k, key) -> {
+            feed.remove(key);
+            return null;
+        });
+        lastModifiedMillis = System.currentTimeMillis();
+        for (FeedIndexListener listener : listeners) {
+            listener.photoRemoved(id);
+        }
+    }
+    
+    private void index(Photo photo) {
+        if (photo == null || photo.getId() == null) {
+            return;
+        }
+        FeedKey key = new FeedKey(photo.getUploadedAt(), photo.getId());
+        // Per-id lock keeps the key map and the ordered map consistent
+        keysById.compute(photo.getId(), (id, previous) -> {
+            if (previous != null && !previous.equals(key)) {
+                feed.remove(previous);
+            }
+            feed.put(key, photo);
+            return key;
+        });
+        lastModifiedMillis = System.currentTimeMillis();
+    }
+    
+    public Photo get(String id) {
+        FeedKey key = keysById.get(id);
+        return key != null ? feed.get(key) : null;
+    }
+    
+    public List<Photo> all() {
+        return new ArrayList<>(feed.values());
+    }
+    
+    /**
+     * Returns up to {@code limit} photos that come after {@code cursor} in the feed.
+     * A null cursor starts from the newest photo.
+     */
+    public FeedPage page(String cursor, int limit) {
+        NavigableMap<FeedKey, Photo> view = feed;
+        if (cursor != null && !cursor.isEmpty()) {
+            view = feed.tailMap(FeedKey.decode(cursor), false);
+        }
+        
+        List<Photo> photos = new ArrayList<>(Math.min(limit, 64));
+        FeedKey last = null;
+        Iterator<Map.Entry<FeedKey, Photo>> it = view.entrySet().iterator();
+        while (it.hasNext() && photos.size() < limit) {
+            Map.Entry<FeedKey, Photo> entry = it.next();
+            photos.add(entry.getValue());
+            last = entry.getKey();
+        }
+        
+        String nextCursor = (last != null && it.hasNext()) ? last.encode() : null;
+        return new FeedPage(photos, nextCursor);
+    }
+    
+    public static class FeedPage {
+        private final List<Photo> photos;
+        private final String nextCursor;
+        
+        public FeedPage(List<Photo> photos, String nextCursor) {
+            this.photos = photos;
+            this.nextCursor = nextCursor;
+        }
+        
+        public List<Photo> getPhotos() { return photos; }
+        public String getNextCursor() { return nextCursor; }
+    }
+    
+    private static final class FeedKey implements Comparable<FeedKey> {
+        private final LocalDateTime uploadedAt;
+        private final String id;
+        
+        FeedKey(LocalDateTime uploadedAt, String id) {
+            this.uploadedAt = uploadedAt != null ? uploadedAt : LocalDateTime.MIN;
+            this.id = id;
+        }
+        
+        @Override
+        public int compareTo(FeedKey other) {
+            // Newest first, id breaks ties so keys stay unique
+            int cmp = other.uploadedAt.compareTo(uploadedAt);
+            return cmp != 0 ? cmp : id.compareTo(other.id);
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof FeedKey)) return false;
+            FeedKey other = (FeedKey) o;
+            return uploadedAt.equals(other.uploadedAt) && id.equals(other.id);
+        }
+        
+        @Override
+        public int hashCode() {
+            return 31 * uploadedAt.hashCode() + id.hashCode();
+        }
+        
+        String encode() {
+            String raw = uploadedAt + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        static FeedKey decode(String cursor) {
+            String raw;
+            try {
+                raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            int sep = raw.indexOf('|');
+            if (sep < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            try {
+                return new FeedKey(LocalDateTime.parse(raw.substring(0, sep)), raw.substring(sep + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.photoshare.service;
+
+import com.photoshare.model.Photo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleBinaryOperator;
+
+/**
+ * Leaderboards for GET /api/photos/top. They are updated as likes, ratings
+ * and comments arrive, instead of being computed from the whole feed on
+ * every request. Each configured window has three bounded boards:
+ * <ul>
+ *   <li>likes and rating admit only photos uploaded within the window.
+ *       Rating uses a Bayesian average, so a single 5-star vote does not top
+ *       the board.</li>
+ *   <li>trending sums event weights that decay exponentially, with the
+ *       window as the time constant. Scores are stored as logarithms relative
+ *       to a fixed epoch, so they never need rescaling as time passes.</li>
+ * </ul>
+ * A photo that falls off a board is forgotten. A periodic reseed from the
+ * in-memory feed index restores exact like and rating scores and drops
+ * deleted or expired photos. Trending keeps no event history: a photo that
+ * falls off restarts from its next event, and the first reseed places each
+ * photo's engagement at its upload time.
+ */
+@Service
+public class PhotoRankings implements FeedIndexListener {
+    
+    public enum By {
+        LIKES, RATING, TRENDING;
+        
+        public static By parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown ranking '" + value + "', expected likes, rating or trending");
+            }
+        }
+    }
+    
+    private static final Logger log = LoggerFactory.getLogger(PhotoRankings.class);
+    
+    private static final double LIKE_WEIGHT = 1;
+    private static final double RATING_WEIGHT = 1;
+    private static final double COMMENT_WEIGHT = 2;
+    // Ratings are pulled towards this mean until a photo has enough votes of its own
+    private static final double RATING_PRIOR = 3.0;
+    // Trending scores decayed below this are dropped at reseed
+    private static final double MIN_TRENDING_SCORE = 0.01;
+    private static final long RESEED_CHECK_MILLIS = 10_000;
+    
+    private static final DoubleBinaryOperator LATEST = (current, value) -> value;
+    private static final DoubleBinaryOperator LOG_SUM = (a, b) ->
+            Math.max(a, b) + Math.log1p(Math.exp(-Math.abs(a - b)));
+    
+    @Autowired
+    private PhotoFeedIndex photoFeedIndex;
+    
+    @Autowired
+    private EngagementAggregator engagementAggregator;
+    
+    @Value("${photoshare.rankings.windows:24h,7d}")
+    private String windows;
+    
+    @Value("${photoshare.rankings.size:100}")
+    private int size;
+    
+    @Value("${photoshare.rankings.refresh-ms:1000}")
+    private long refreshMillis;
+    
+    @Value("${photoshare.rankings.rating-prior-weight:5}")
+    private double ratingPriorWeight;
+    
+    @Value("${photoshare.rankings.reseed-interval-ms:300000}")
+    private long reseedIntervalMillis;
+    
+    // Trending log-scores are relative to this instant
+    private final long epochMillis = System.currentTimeMillis();
+    // Keyed by the configured label, e.g. "24h"; filled at startup, read-only afterwards
+    private final Map<String, Boards> boards = new LinkedHashMap<>();
+    private final LongAdder updates = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    
+    private ScheduledExecutorService reseedExecutor;
+    private volatile boolean seeded;
+    private volatile long lastReseedMillis;
+    
+    @PostConstruct
+    public void start() {
+        // Boards keep some slack beyond the largest page so evictions rarely show
+        int capacity = size * 2;
+        long refreshNanos = TimeUnit.MILLISECONDS.toNanos(refreshMillis);
+        for (String label : windows.split(",")) {
+            String trimmed = label.trim();
+            boards.put(trimmed, new Boards(DurationStyle.detectAndParse(trimmed), capacity, refreshNanos));
+        }
+        if (boards.isEmpty()) {
+            throw new IllegalArgumentException("photoshare.rankings.windows needs at least one window");
+        }
+        
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("rankings-reseed-");
+        threadFactory.setDaemon(true);
+        reseedExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        // Checked often until the feed index is loaded, then reseeded every interval
+        reseedExecutor.scheduleWithFixedDelay(this::reseedSafely,
+                RESEED_CHECK_MILLIS, RESEED_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+        // Deleted photos leave the boards right away; new ones enter with their first event
+        photoFeedIndex.addListener(this);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        reseedExecutor.shutdownNow();
+    }
+    
+    /** Largest page {@link #top} serves. */
+    public int getSize() {
+        return size;
+    }
+    
+    /** The configured window matching the label or duration, or the first window when null. */
+    public String resolveWindow(String window) {
+        if (window == null || window.isBlank()) {
+            return boards.keySet().iterator().next();
+        }
+        if (boards.containsKey(window.trim())) {
+            return window.trim();
+        }
+        try {
+            Duration requested = DurationStyle.detectAndParse(window.trim());
+            for (Map.Entry<String, Boards> entry : boards.entrySet()) {
+                if (entry.getValue().window.equals(requested)) {
+                    return entry.getKey();
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Reported below along with the valid windows
+        }
+        throw new IllegalArgumentException("Unknown window '" + window + "', expected one of " + boards.keySet());
+    }
+    
+    public void recordLike(Photo view) {
+        long now = System.currentTimeMillis();
+        long uploadedAt = uploadedAtMillis(view);
+        updates.increment();
+        for (Boards b : boards.values()) {
+            if (b.admits(uploadedAt, now)) {
+                b.likes.merge(view.getId(), view.getLikes(), uploadedAt, LATEST);
+            }
+            b.trending.merge(view.getId(), b.logWeight(LIKE_WEIGHT, now), uploadedAt, LOG_SUM);
+        }
+    }
+    
+    public void recordRating(Photo view) {
+        long now = System.currentTimeMillis();
+        long uploadedAt = uploadedAtMillis(view);
+        updates.increment();
+        for (Boards b : boards.values()) {
+            if (b.admits(uploadedAt, now)) {
+                b.rating.merge(view.getId(), bayesianRating(view), uploadedAt, LATEST);
+            }
+            b.trending.merge(view.getId(), b.logWeight(RATING_WEIGHT, now), uploadedAt, LOG_SUM);
+        }
+    }
+    
+    public void recordComment(Photo photo) {
+        long now = System.currentTimeMillis();
+        updates.increment();
+        for (Boards b : boards.values()) {
+            b.trending.merge(photo.getId(), b.logWeight(COMMENT_WEIGHT, now), uploadedAtMillis(photo), LOG_SUM);
+        }
+    }
+    
+    @Override
+    public void photoRemoved(String photoId) {
+        for (Boards b : boards.values()) {
+            b.likes.removeIf(entry -> entry.id.equals(photoId));
+            b.rating.removeIf(entry -> entry.id.equals(photoId));
+            b.trending.removeIf(entry -> entry.id.equals(photoId));
+        }
+    }
+    
+    /**
+     * Up to {@code limit} photo ids with their scores, best first. Reads a
+     * published snapshot, so the cost depends on {@code limit} only.
+     *
+     * @param window a label returned by {@link #resolveWindow}
+     */
+    public List<Ranked> top(By by, String window, int limit) {
+        queries.increment();
+        Boards b = boards.get(window);
+        long now = System.currentTimeMillis();
+        List<RankingBoard.Entry> entries = switch (by) {
+            case LIKES -> b.likes.snapshot();
+            case RATING -> b.rating.snapshot();
+            case TRENDING -> b.trending.snapshot();
+        };
+        
+        List<Ranked> ranked = new ArrayList<>(Math.min(limit, entries.size()));
+        for (RankingBoard.Entry entry : entries) {
+            if (ranked.size() >= limit) {
+                break;
+            }
+            if (by == By.TRENDING) {
+                ranked.add(new Ranked(entry.id, b.trendingScore(entry, now)));
+            } else if (b.admits(entry.uploadedAtMillis, now)) {
+                // Photos that aged out since the last reseed are skipped here
+                ranked.add(new Ranked(entry.id, entry.score));
+            }
+        }
+        return ranked;
+    }
+    
+    private double bayesianRating(Photo view) {
+        return (RATING_PRIOR * ratingPriorWeight + view.getRating() * view.getRatingCount())
+                / (ratingPriorWeight + view.getRatingCount());
+    }
+    
+    private static long uploadedAtMillis(Photo photo) {
+        return photo.getUploadedAt() != null
+                ? photo.getUploadedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : 0;
+    }
+    
+    private void reseedSafely() {
+        try {
+            if (!photoFeedIndex.isLoaded()
+                    || (seeded && System.currentTimeMillis() - lastReseedMillis < reseedIntervalMillis)) {
+                return;
+            }
+            reseed();
+        } catch (RuntimeException e) {
+            log.warn("Rankings reseed failed", e);
+        }
+    }
+    
+    /** Re-offers every photo in the feed index, then drops deleted, expired and decayed entries. */
+    void reseed() {
+        long start = System.nanoTime();
+        long now = System.currentTimeMillis();
+        List<Photo> photos = photoFeedIndex.all();
+        for (Photo photo : photos) {
+            Photo view = engagementAggregator.applyPending(photo);
+            long uploadedAt = uploadedAtMillis(view);
+            double engagement = view.getLikes() * LIKE_WEIGHT + view.getRatingCount() * RATING_WEIGHT
+                    + view.getCommentCount() * COMMENT_WEIGHT;
+            for (Boards b : boards.values()) {
+                if (b.admits(uploadedAt, now)) {
+                    if (view.getLikes() > 0) {
+                        b.likes.merge(view.getId(), view.getLikes(), uploadedAt, LATEST);
+                    }
+                    if (view.getRatingCount() > 0) {
+                        b.rating.merge(view.getId(), bayesianRating(view), uploadedAt, LATEST);
+                    }
+                }
+                // Event times are not stored, so the first seed dates all engagement at upload. Events
+                // recorded since startup are part of that engagement too, hence max rather than a sum
+                if (!seeded && engagement > 0) {
+                    b.trending.merge(view.getId(), b.logWeight(engagement, uploadedAt), uploadedAt, Math::max);
+                }
+            }
+        }
+        
+        for (Boards b : boards.values()) {
+            b.likes.removeIf(entry -> !b.admits(entry.uploadedAtMillis, now) || photoFeedIndex.get(entry.id) == null);
+            b.rating.removeIf(entry -> !b.admits(entry.uploadedAtMillis, now) || photoFeedIndex.get(entry.id) == null);
+            b.trending.removeIf(entry -> b.trendingScore(entry, now) < MIN_TRENDING_SCORE
+                    || photoFeedIndex.get(entry.id) == null);
+        }
+        seeded = true;
+        lastReseedMillis = now;
+        log.debug("Rankings reseeded from {} photos in {} ms", photos.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        Map<String, Object> byWindow = new LinkedHashMap<>();
+        boards.forEach((label, b) -> {
+            Map<String, Object> sizes = new LinkedHashMap<>();
+            sizes.put("likes", b.likes.size());
+            sizes.put("rating", b.rating.size());
+            sizes.put("trending", b.trending.size());
+            byWindow.put(label, sizes);
+        });
+        stats.put("windows", byWindow);
+        stats.put("capacity", size * 2);
+        stats.put("updates", updates.sum());
+        stats.put("queries", queries.sum());
+        stats.put("seeded", seeded);
+        stats.put("lastReseedMillis", lastReseedMillis);
+        return stats;
+    }
+    
+    public static class Ranked {
+        private final String photoId;
+        private final double score;
+        
+        public Ranked(String photoId, double score) {
+            this.photoId = photoId;
+            this.score = score;
+        }
+        
+        public String getPhotoId() { return photoId; }
+        public double getScore() { return score; }
+    }
+    
+    private class Boards {
+        final Duration window;
+        final double windowMillis;
+        final RankingBoard likes;
+        final RankingBoard rating;
+        final RankingBoard trending;
+        
+        Boards(Duration window, int capacity, long refreshNanos) {
+            this.window = window;
+            this.windowMillis = window.toMillis();
+            this.likes = new RankingBoard(capacity, refreshNanos);
+            this.rating = new RankingBoard(capacity, refreshNanos);
+            this.trending = new RankingBoard(capacity, refreshNanos);
+        }
+        
+        boolean admits(long uploadedAtMillis, long now) {
+            return uploadedAtMillis >= now - windowMillis;
+        }
+        
+        // weight * e^((at - epoch) / window), as a logarithm so it never overflows
+        double logWeight(double weight, long atMillis) {
+            return Math.log(weight) + (atMillis - epochMillis) / windowMillis;
+        }
+        
+        double trendingScore(RankingBoard.Entry entry, long now) {
+            return Math.exp(entry.score - (now - epochMillis) / windowMillis);
+        }
+    }
+}
@@ -0,0 +1,423 @@
+package com.photoshare.service;
+
+import com.photoshare.model.Photo;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Inverted index over photo titles, captions, tags and locations. Each photo
+ * gets a small int doc id, assigned in upload order, and every normalized
+ * term maps to a sorted int array of doc ids. Queries intersect the lists
+ * newest first, so the cost depends on the size of the shortest list rather
+ * than on the catalog. Built from the feed index at startup and kept current
+ * by listening to its changes.
+ */
+@Service
+public class PhotoSearchIndex implements FeedIndexListener {
+    
+    private static final Logger log = LoggerFactory.getLogger(PhotoSearchIndex.class);
+    
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final int MAX_QUERY_TERMS = 10;
+    
+    @Autowired
+    private PhotoFeedIndex photoFeedIndex;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean built;
+    
+    // Guarded by lock
+    private final Map<String, PostingList> terms = new HashMap<>();
+    private final Map<String, PostingList> tags = new HashMap<>();
+    private final Map<String, PostingList> locations = new HashMap<>();
+    private final Map<String, Integer> docsByPhotoId = new HashMap<>();
+    private String[] photoIds = new String[1024];
+    private PostingList[][] postingsByDoc = new PostingList[1024][];
+    private int nextDoc;
+    
+    @PostConstruct
+    public void subscribe() {
+        photoFeedIndex.addListener(this);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            ensureBuilt();
+        } catch (Exception e) {
+            log.warn("Photo search index could not be built at startup, will retry on first search", e);
+        }
+    }
+    
+    public void ensureBuilt() throws Exception {
+        if (!built) {
+            build(false);
+        }
+    }
+    
+    /** Re-creates the index from the feed, compacting doc ids freed by deletes. */
+    public void rebuild() throws Exception {
+        build(true);
+    }
+    
+    private void build(boolean force) throws Exception {
+        photoFeedIndex.ensureLoaded();
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            if (built && !force) {
+                return;
+            }
+            terms.clear();
+            tags.clear();
+            locations.clear();
+            docsByPhotoId.clear();
+            photoIds = new String[Math.max(1024, photoFeedIndex.size())];
+            postingsByDoc = new PostingList[photoIds.length][];
+            nextDoc = 0;
+            
+            // The feed is newest first; doc ids are handed out oldest first
+            List<Photo> photos = photoFeedIndex.all();
+            for (int i = photos.size() - 1; i >= 0; i--) {
+                index(photos.get(i));
+            }
+            built = true;
+            log.info("Photo search index built with {} photos and {} terms in {} ms",
+                    docsByPhotoId.size(), terms.size(), (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /** Adds the photo, or re-indexes it if its searchable fields changed. */
+    @Override
+    public void photoPut(Photo photo) {
+        if (photo == null || photo.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            // Until the first build, the rebuild picks the photo up from the feed index
+            if (built) {
+                index(photo);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    @Override
+    public void photoRemoved(String photoId) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docsByPhotoId.remove(photoId);
+            if (doc != null) {
+                for (PostingList list : postingsByDoc[doc]) {
+                    list.remove(doc);
+                }
+                postingsByDoc[doc] = null;
+                photoIds[doc] = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * Photos matching every term of {@code query} (title, caption, tags and
+     * location words), the exact {@code tag} and every word of {@code location},
+     * newest first. Blank criteria are ignored, but at least one is required.
+     */
+    public SearchPage search(String query, String tag, String location, String cursor, int limit) throws Exception {
+        Set<String> queryTerms = tokenize(query);
+        Set<String> locationTerms = tokenize(location);
+        String normalizedTag = tag != null ? normalizeTag(tag) : "";
+        if (queryTerms.isEmpty() && locationTerms.isEmpty() && normalizedTag.isEmpty()) {
+            throw new IllegalArgumentException("A query, tag or location is required");
+        }
+        if (queryTerms.size() + locationTerms.size() > MAX_QUERY_TERMS) {
+            throw new IllegalArgumentException("At most " + MAX_QUERY_TERMS + " search terms are allowed");
+        }
+        int before = decodeCursor(cursor);
+        ensureBuilt();
+        
+        List<String> matches = new ArrayList<>(Math.min(limit, 64));
+        int last = -1;
+        boolean more = false;
+        
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>();
+            if (!collect(terms, queryTerms, lists) || !collect(locations, locationTerms, lists)
+                    || !collect(tags, normalizedTag.isEmpty() ? Set.of() : Set.of(normalizedTag), lists)) {
+                return new SearchPage(List.of(), null);
+            }
+            lists.sort(Comparator.comparingInt(PostingList::size));
+            
+            // Walk the shortest list downwards and probe the others
+            PostingList shortest = lists.get(0);
+            for (int i = shortest.lowerBound(before) - 1; i >= 0; i--) {
+                int doc = shortest.get(i);
+                if (!containedInAll(lists, doc)) {
+                    continue;
+                }
+                if (matches.size() == limit) {
+                    more = true;
+                    break;
+                }
+                matches.add(photoIds[doc]);
+                last = doc;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        
+        List<Photo> photos = new ArrayList<>(matches.size());
+        for (String photoId : matches) {
+            Photo photo = photoFeedIndex.get(photoId);
+            if (photo != null) {
+                photos.add(photo);
+            }
+        }
+        return new SearchPage(photos, more ? Integer.toString(last) : null);
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("photos", docsByPhotoId.size());
+            stats.put("terms", terms.size());
+            stats.put("tags", tags.size());
+            stats.put("locations", locations.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        return stats;
+    }
+    
+    // Caller holds the write lock
+    private void index(Photo photo) {
+        Set<PostingList> wanted = new LinkedHashSet<>();
+        Set<String> photoTerms = new LinkedHashSet<>();
+        photoTerms.addAll(tokenize(photo.getTitle()));
+        photoTerms.addAll(tokenize(photo.getCaption()));
+        photoTerms.addAll(tokenize(photo.getTags()));
+        photoTerms.addAll(tokenize(photo.getLocation()));
+        for (String term : photoTerms) {
+            wanted.add(terms.computeIfAbsent(term, key -> new PostingList(terms, key)));
+        }
+        for (String tag : splitTags(photo.getTags())) {
+            wanted.add(tags.computeIfAbsent(tag, key -> new PostingList(tags, key)));
+        }
+        for (String term : tokenize(photo.getLocation())) {
+            wanted.add(locations.computeIfAbsent(term, key -> new PostingList(locations, key)));
+        }
+        
+        Integer existing = docsByPhotoId.get(photo.getId());
+        int doc;
+        if (existing != null) {
+            doc = existing;
+            PostingList[] previous = postingsByDoc[doc];
+            if (previous.length == wanted.size() && wanted.containsAll(Arrays.asList(previous))) {
+                return;
+            }
+            for (PostingList list : previous) {
+                if (!wanted.contains(list)) {
+                    list.remove(doc);
+                }
+            }
+            for (PostingList list : wanted) {
+                list.add(doc);
+            }
+        } else {
+            doc = allocateDoc(photo.getId());
+            for (PostingList list : wanted) {
+                list.add(doc);
+            }
+        }
+        postingsByDoc[doc] = wanted.toArray(new PostingList[0]);
+    }
+    
+    private int allocateDoc(String photoId) {
+        if (nextDoc == photoIds.length) {
+            photoIds = Arrays.copyOf(photoIds, photoIds.length * 2);
+            postingsByDoc = Arrays.copyOf(postingsByDoc, postingsByDoc.length * 2);
+        }
+        int doc = nextDoc++;
+        photoIds[doc] = photoId;
+        docsByPhotoId.put(photoId, doc);
+        return doc;
+    }
+    
+    /** Adds the lists for every key to {@code out}; false if any key has no postings. */
+    private static boolean collect(Map<String, PostingList> index, Set<String> keys, List<PostingList> out) {
+        for (String key : keys) {
+            PostingList list = index.get(key);
+            if (list == null || list.size() == 0) {
+                return false;
+            }
+            out.add(list);
+        }
+        return true;
+    }
+    
+    private static boolean containedInAll(List<PostingList> lists, int doc) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(doc)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return Integer.MAX_VALUE;
+        }
+        try {
+            int doc = Integer.parseInt(cursor);
+            if (doc < 0) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return doc;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+    
+    // Lowercase, accents folded, split on anything that is not a letter or digit
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        for (String token : TOKEN_SEPARATOR.split(fold(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+    
+    // Tags are matched whole: "#Street Art " and "street  art" are the same tag
+    static Set<String> splitTags(String tagList) {
+        Set<String> result = new LinkedHashSet<>();
+        if (tagList == null || tagList.isBlank()) {
+            return result;
+        }
+        for (String tag : tagList.split(",")) {
+            String normalized = normalizeTag(tag);
+            if (!normalized.isEmpty()) {
+                result.add(normalized);
+            }
+        }
+        return result;
+    }
+    
+    static String normalizeTag(String tag) {
+        String folded = WHITESPACE.matcher(fold(tag).trim()).replaceAll(" ");
+        while (folded.startsWith("#")) {
+            folded = folded.substring(1).trim();
+        }
+        return folded;
+    }
+    
+    private static String fold(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+    
+    /** Sorted doc ids for one term. Identity equality: one instance per key. */
+    private static final class PostingList {
+        private final Map<String, PostingList> owner;
+        private final String key;
+        private int[] docs = new int[4];
+        private int size;
+        
+        PostingList(Map<String, PostingList> owner, String key) {
+            this.owner = owner;
+            this.key = key;
+        }
+        
+        int size() {
+            return size;
+        }
+        
+        int get(int index) {
+            return docs[index];
+        }
+        
+        boolean contains(int doc) {
+            return Arrays.binarySearch(docs, 0, size, doc) >= 0;
+        }
+        
+        /** Index of the first doc id not less than {@code doc}. */
+        int lowerBound(int doc) {
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            return position >= 0 ? position : -position - 1;
+        }
+        
+        void add(int doc) {
+            // New photos get the highest doc id, so this is nearly always an append
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            System.arraycopy(docs, position, docs, position + 1, size - position);
+            docs[position] = doc;
+            size++;
+        }
+        
+        void remove(int doc) {
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(docs, position + 1, docs, position, size - position - 1);
+            size--;
+            if (size == 0) {
+                owner.remove(key);
+            }
+        }
+    }
+    
+    public static class SearchPage {
+        private final List<Photo> photos;
+        private final String nextCursor;
+        
+        public SearchPage(List<Photo> photos, String nextCursor) {
+            this.photos = photos;
+            this.nextCursor = nextCursor;
+        }
+        
+        public List<Photo> getPhotos() { return photos; }
+        public String getNextCursor() { return nextCursor; }
+    }
+}
@@ -0,0 +1,26 @@
+package com.photoshare.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.photoshare.model.LikedBySet;
+
+/**
+ * Jackson mix-in for the storage mapper: persists likedBy, which the API
+ * hides, and drops the per-request likedByMe flag.
+ */
+abstract class PhotoStorageMixin {
+    
+    @JsonProperty("likedBy")
+    @JsonIgnore(false)
+    abstract LikedBySet getLikedBy();
+    
+    @JsonProperty("likedBy")
+    @JsonIgnore(false)
+    abstract void setLikedBy(LikedBySet likedBy);
+    
+    @JsonIgnore
+    abstract Boolean getLikedByMe();
+    
+    @JsonIgnore
+    abstract void setLikedByMe(Boolean likedByMe);
+}
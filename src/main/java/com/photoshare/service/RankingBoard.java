@@ -0,0 +1,115 @@
+package com.photoshare.service;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.Predicate;
+
+/**
+ * The highest-scoring photos for one leaderboard, holding at most
+ * {@code capacity} of them. An update takes a short lock and costs
+ * O(log capacity). Readers never take the lock: they get an immutable
+ * snapshot, republished at most once per refresh interval and only after
+ * something changed.
+ */
+final class RankingBoard {
+    
+    static final class Entry {
+        final String id;
+        final double score;
+        // Upload time, for boards limited to recent photos
+        final long uploadedAtMillis;
+        
+        Entry(String id, double score, long uploadedAtMillis) {
+            this.id = id;
+            this.score = score;
+            this.uploadedAtMillis = uploadedAtMillis;
+        }
+    }
+    
+    // Lowest score first, so the entry to evict is always first()
+    private static final Comparator<Entry> ORDER = Comparator.<Entry>comparingDouble(e -> e.score)
+            .thenComparing(e -> e.id);
+    
+    private final int capacity;
+    private final long refreshNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final TreeSet<Entry> order = new TreeSet<>(ORDER);
+    private volatile List<Entry> snapshot = List.of();
+    private volatile boolean dirty;
+    private long snapshotNanos;
+    
+    RankingBoard(int capacity, long refreshNanos) {
+        this.capacity = capacity;
+        this.refreshNanos = refreshNanos;
+        this.snapshotNanos = System.nanoTime() - refreshNanos;
+    }
+    
+    /**
+     * Sets the photo's score to {@code combine(current, value)}, or to
+     * {@code value} when it is not on the board. A photo that is not on a
+     * full board joins only if it beats the lowest entry, which is evicted.
+     */
+    void merge(String id, double value, long uploadedAtMillis, DoubleBinaryOperator combine) {
+        lock.lock();
+        try {
+            Entry previous = entries.get(id);
+            double score = previous != null ? combine.applyAsDouble(previous.score, value) : value;
+            if (previous != null) {
+                if (previous.score == score) {
+                    return;
+                }
+                order.remove(previous);
+            } else if (entries.size() >= capacity) {
+                Entry lowest = order.first();
+                if (score <= lowest.score) {
+                    return;
+                }
+                order.pollFirst();
+                entries.remove(lowest.id);
+            }
+            Entry entry = new Entry(id, score, uploadedAtMillis);
+            entries.put(id, entry);
+            order.add(entry);
+            dirty = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    void removeIf(Predicate<Entry> stale) {
+        lock.lock();
+        try {
+            if (order.removeIf(stale)) {
+                entries.values().removeIf(stale);
+                dirty = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    int size() {
+        return entries.size();
+    }
+    
+    /** Entries, highest score first; at most one refresh interval stale. */
+    List<Entry> snapshot() {
+        if (dirty && System.nanoTime() - snapshotNanos >= refreshNanos && lock.tryLock()) {
+            // Readers that miss the lock keep serving the previous snapshot
+            try {
+                snapshot = List.copyOf(order.descendingSet());
+                dirty = false;
+                snapshotNanos = System.nanoTime();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return snapshot;
+    }
+}
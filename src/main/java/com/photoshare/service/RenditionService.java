@@ -0,0 +1,253 @@
+package com.photoshare.service;
+
+import com.photoshare.model.Photo;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates downscaled JPEG variants of uploaded images in the background
+ * and records their URLs on the photo. Work goes through a bounded queue
+ * drained by one worker per CPU; when the queue is full the job is dropped
+ * and the photo simply keeps serving the original. Dimensions are read from
+ * the image header before decoding: originals over the pixel limit are
+ * refused, and large ones are decoded subsampled rather than at full size.
+ */
+@Service
+public class RenditionService {
+    
+    private static final Logger log = LoggerFactory.getLogger(RenditionService.class);
+    
+    @Autowired
+    private BlobStorageService blobStorageService;
+    
+    @Autowired
+    private PhotoFeedIndex photoFeedIndex;
+    
+    @Value("${photoshare.renditions.sizes:256,1024}")
+    private List<Integer> sizes;
+    
+    @Value("${photoshare.renditions.queue-capacity:500}")
+    private int queueCapacity;
+    
+    @Value("${photoshare.renditions.jpeg-quality:0.85}")
+    private float jpegQuality;
+    
+    @Value("${photoshare.renditions.max-pixels:100000000}")
+    private long maxPixels;
+    
+    private ThreadPoolExecutor executor;
+    
+    // Originals are decoded with their longest edge at no less than this
+    private int decodeEdge;
+    
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder oversized = new LongAdder();
+    private final LongAdder subsampled = new LongAdder();
+    private final LongAdder totalLatencyMillis = new LongAdder();
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+    
+    @PostConstruct
+    public void start() {
+        // Twice the largest rendition, so the final halving pass still smooths subsampled pixels
+        decodeEdge = 2 * Collections.max(sizes);
+        int workers = Runtime.getRuntime().availableProcessors();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("rendition-");
+        threadFactory.setDaemon(true);
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+    }
+    
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+    
+    /** Queues rendition work for a freshly uploaded image; never blocks the caller. */
+    public void submit(String photoId, String imageBlobName) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            executor.execute(() -> process(photoId, imageBlobName, enqueuedAt));
+            submitted.increment();
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("Rendition queue full, skipping renditions for photo {}", photoId);
+        }
+    }
+    
+    public Map<String, Object> stats() {
+        long done = completed.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", executor.getQueue().size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("activeWorkers", executor.getActiveCount());
+        stats.put("workers", executor.getMaximumPoolSize());
+        stats.put("submitted", submitted.sum());
+        stats.put("completed", done);
+        stats.put("failed", failed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("oversized", oversized.sum());
+        stats.put("subsampled", subsampled.sum());
+        stats.put("avgLatencyMs", done == 0 ? 0 : totalLatencyMillis.sum() / done);
+        stats.put("maxLatencyMs", maxLatencyMillis.get());
+        return stats;
+    }
+    
+    private void process(String photoId, String imageBlobName, long enqueuedAt) {
+        try {
+            BufferedImage original = decode(imageBlobName, blobStorageService.downloadImage(imageBlobName));
+            
+            Map<String, String> urls = new LinkedHashMap<>();
+            int longestEdge = Math.max(original.getWidth(), original.getHeight());
+            for (int size : sizes) {
+                // Never upscale; small originals are their own rendition
+                if (longestEdge <= size) {
+                    continue;
+                }
+                byte[] jpeg = encodeJpeg(downscale(original, size));
+                StoredImage stored = blobStorageService.uploadImage(renditionName(imageBlobName, size), jpeg, "image/jpeg");
+                urls.put(String.valueOf(size), stored.getUrl());
+            }
+            
+            if (!urls.isEmpty()) {
+                Photo photo = blobStorageService.updateObject("photos", photoId + ".json", Photo.class, current -> {
+                    current.getRenditions().putAll(urls);
+                    current.setUpdatedAt(LocalDateTime.now());
+                    return true;
+                });
+                if (photo != null) {
+                    photoFeedIndex.put(photo);
+                }
+            }
+            
+            long latencyMillis = (System.nanoTime() - enqueuedAt) / 1_000_000;
+            totalLatencyMillis.add(latencyMillis);
+            maxLatencyMillis.accumulateAndGet(latencyMillis, Math::max);
+            completed.increment();
+        } catch (Exception e) {
+            failed.increment();
+            log.warn("Rendition failed for photo {} ({})", photoId, imageBlobName, e);
+        }
+    }
+    
+    /**
+     * Decodes the first image, refusing it when the header declares more than
+     * the pixel limit: a few KB of compressed data can claim dimensions that
+     * would need gigabytes of heap. Large originals are decoded subsampled.
+     */
+    private BufferedImage decode(String imageBlobName, byte[] data) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(data))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + imageBlobName);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    oversized.increment();
+                    throw new IOException("Image " + imageBlobName + " is " + width + "x" + height
+                            + ", over the " + maxPixels + " pixel limit");
+                }
+                
+                ImageReadParam param = reader.getDefaultReadParam();
+                int factor = Math.max(1, Math.max(width, height) / decodeEdge);
+                if (factor > 1) {
+                    param.setSourceSubsampling(factor, factor, 0, 0);
+                    subsampled.increment();
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+    
+    private static BufferedImage downscale(BufferedImage source, int longestEdge) {
+        double scale = (double) longestEdge / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        
+        // Halve repeatedly before the final step; a single bilinear pass aliases badly on big reductions
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                // JPEG has no alpha; flatten transparent areas onto white rather than black
+                g.setBackground(Color.WHITE);
+                g.clearRect(0, 0, width, height);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+    
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+    
+    private static String renditionName(String blobName, int size) {
+        int dot = blobName.lastIndexOf('.');
+        String base = dot > 0 ? blobName.substring(0, dot) : blobName;
+        return base + "_" + size + ".jpg";
+    }
+}
@@ -0,0 +1,26 @@
+package com.photoshare.service;
+
+/**
+ * An image blob that has been written to the "images" container.
+ */
+public class StoredImage {
+    private final String blobName;
+    private final String url;
+    private final boolean existing;
+    
+    public StoredImage(String blobName, String url) {
+        this(blobName, url, false);
+    }
+    
+    public StoredImage(String blobName, String url, boolean existing) {
+        this.blobName = blobName;
+        this.url = url;
+        this.existing = existing;
+    }
+    
+    public String getBlobName() { return blobName; }
+    public String getUrl() { return url; }
+    
+    // True when identical content was already stored and the upload was skipped
+    public boolean isExisting() { return existing; }
+}
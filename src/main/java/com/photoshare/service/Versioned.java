@@ -0,0 +1,17 @@
+package com.photoshare.service;
+
+/**
+ * A stored object together with the ETag it was read at.
+ */
+public class Versioned<T> {
+    private final T value;
+    private final String etag;
+    
+    public Versioned(T value, String etag) {
+        this.value = value;
+        this.etag = etag;
+    }
+    
+    public T getValue() { return value; }
+    public String getEtag() { return etag; }
+}
@@ -0,0 +1,227 @@
+package com.photoshare.storage;
+
+import com.azure.core.util.BinaryData;
+import com.azure.core.util.Context;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.models.BlobDownloadContentResponse;
+import com.azure.storage.blob.models.BlobHttpHeaders;
+import com.azure.storage.blob.models.BlobItem;
+import com.azure.storage.blob.models.BlobProperties;
+import com.azure.storage.blob.models.BlobRequestConditions;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.models.ListBlobsOptions;
+import com.azure.storage.blob.models.ParallelTransferOptions;
+import com.azure.storage.blob.options.BlobDownloadToFileOptions;
+import com.azure.storage.blob.options.BlobParallelUploadOptions;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Azure Blob Storage. Conditional reads and writes map onto If-None-Match and
+ * If-Match; a container that disappears is re-provisioned and the call retried once.
+ */
+@Component
+@ConditionalOnProperty(name = "photoshare.storage.backend", havingValue = "azure", matchIfMissing = true)
+public class AzureStorageBackend implements StorageBackend {
+    
+    @Autowired
+    private BlobContainerRegistry containerRegistry;
+    
+    @Value("${photoshare.upload.block-size:4MB}")
+    private DataSize uploadBlockSize;
+    
+    @Value("${photoshare.upload.max-concurrency:4}")
+    private int uploadConcurrency;
+    
+    /**
+     * Runs a storage call against the registered container client. If the
+     * container has gone missing it is re-provisioned and the call retried once.
+     */
+    private <R> R withContainer(String containerName, ContainerCall<R> call) {
+        try {
+            return call.apply(containerRegistry.get(containerName));
+        } catch (BlobStorageException e) {
+            if (!BlobContainerRegistry.isContainerMissing(e)) {
+                throw e;
+            }
+            return call.apply(containerRegistry.recover(containerName));
+        }
+    }
+    
+    @FunctionalInterface
+    private interface ContainerCall<R> {
+        R apply(BlobContainerClient containerClient);
+    }
+    
+    @Override
+    public StoredBlob read(String containerName, String blobName, String ifNoneMatch) {
+        BlobRequestConditions conditions = ifNoneMatch != null
+                ? new BlobRequestConditions().setIfNoneMatch(ifNoneMatch)
+                : null;
+        try {
+            BlobDownloadContentResponse response = withContainer(containerName, containerClient ->
+                    containerClient.getBlobClient(blobName)
+                            .downloadContentWithResponse(null, conditions, null, Context.NONE));
+            return new StoredBlob(response.getValue().toBytes(),
+                    response.getDeserializedHeaders().getETag(),
+                    response.getDeserializedHeaders().getContentType());
+        } catch (BlobStorageException e) {
+            if (e.getStatusCode() == 304 && ifNoneMatch != null) {
+                return StoredBlob.NOT_MODIFIED;
+            }
+            if (e.getStatusCode() == 404 && !BlobContainerRegistry.isContainerMissing(e)) {
+                return null;
+            }
+            throw e;
+        }
+    }
+    
+    @Override
+    public String write(String containerName, String blobName, byte[] data, String contentType) {
+        return upload(containerName, blobName, data, contentType, null);
+    }
+    
+    @Override
+    public String writeIfMatch(String containerName, String blobName, byte[] data, String contentType, String etag) {
+        BlobRequestConditions conditions = etag != null
+                ? new BlobRequestConditions().setIfMatch(etag)
+                : new BlobRequestConditions().setIfNoneMatch("*");
+        try {
+            return upload(containerName, blobName, data, contentType, conditions);
+        } catch (BlobStorageException e) {
+            if (e.getStatusCode() == 412 || e.getStatusCode() == 409) {
+                throw new PreconditionFailedException(containerName, blobName);
+            }
+            throw e;
+        }
+    }
+    
+    private String upload(String containerName, String blobName, byte[] data, String contentType,
+                          BlobRequestConditions conditions) {
+        // Content and headers go up in one request so the returned ETag is the final one
+        BlobParallelUploadOptions options = new BlobParallelUploadOptions(BinaryData.fromBytes(data))
+                .setHeaders(new BlobHttpHeaders().setContentType(contentType))
+                .setRequestConditions(conditions);
+        return withContainer(containerName, containerClient -> containerClient.getBlobClient(blobName)
+                .uploadWithResponse(options, null, Context.NONE)
+                .getValue()
+                .getETag());
+    }
+    
+    @Override
+    public String writeStream(String containerName, String blobName, InputStream data, long length,
+                              String contentType) {
+        // Anything above one block is staged as blocks uploaded in parallel straight from the
+        // stream, then committed together with the headers in a single request
+        ParallelTransferOptions transferOptions = new ParallelTransferOptions()
+                .setBlockSizeLong(uploadBlockSize.toBytes())
+                .setMaxSingleUploadSizeLong(uploadBlockSize.toBytes())
+                .setMaxConcurrency(uploadConcurrency);
+        BlobParallelUploadOptions options = new BlobParallelUploadOptions(BinaryData.fromStream(data, length))
+                .setParallelTransferOptions(transferOptions)
+                .setHeaders(new BlobHttpHeaders().setContentType(contentType));
+        // The stream cannot be replayed, so no retry after re-provisioning here
+        return containerRegistry.get(containerName).getBlobClient(blobName)
+                .uploadWithResponse(options, null, Context.NONE)
+                .getValue()
+                .getETag();
+    }
+    
+    @Override
+    public BlobAttributes attributes(String containerName, String blobName) {
+        try {
+            BlobProperties properties = withContainer(containerName, containerClient ->
+                    containerClient.getBlobClient(blobName).getProperties());
+            return new BlobAttributes(properties.getBlobSize(), properties.getETag(), properties.getContentType());
+        } catch (BlobStorageException e) {
+            if (e.getStatusCode() == 404 && !BlobContainerRegistry.isContainerMissing(e)) {
+                return null;
+            }
+            throw e;
+        }
+    }
+    
+    @Override
+    public BlobAttributes downloadToFile(String containerName, String blobName, Path target) {
+        BlobDownloadToFileOptions options = new BlobDownloadToFileOptions(target.toString())
+                .setOpenOptions(Set.of(StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE));
+        try {
+            BlobProperties properties = withContainer(containerName, containerClient -> containerClient
+                    .getBlobClient(blobName)
+                    .downloadToFileWithResponse(options, null, Context.NONE)
+                    .getValue());
+            return new BlobAttributes(properties.getBlobSize(), properties.getETag(), properties.getContentType());
+        } catch (BlobStorageException e) {
+            if (e.getStatusCode() == 404 && !BlobContainerRegistry.isContainerMissing(e)) {
+                return null;
+            }
+            throw e;
+        }
+    }
+    
+    @Override
+    public boolean delete(String containerName, String blobName) {
+        return withContainer(containerName, containerClient ->
+                containerClient.getBlobClient(blobName).deleteIfExists());
+    }
+    
+    @Override
+    public Iterable<String> list(String containerName, String prefix) {
+        ListBlobsOptions options = new ListBlobsOptions().setPrefix(prefix);
+        // Pages are fetched lazily, so callers can start work on early names while listing continues
+        return () -> new Iterator<>() {
+            private Iterator<BlobItem> items = containerRegistry.get(containerName).listBlobs(options, null).iterator();
+            
+            @Override
+            public boolean hasNext() {
+                try {
+                    return items.hasNext();
+                } catch (BlobStorageException e) {
+                    if (!BlobContainerRegistry.isContainerMissing(e)) {
+                        throw e;
+                    }
+                    // A container that vanished is recreated empty, so there is nothing to list
+                    containerRegistry.recover(containerName);
+                    items = Collections.emptyIterator();
+                    return false;
+                }
+            }
+            
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return items.next().getName();
+            }
+        };
+    }
+    
+    @Override
+    public String url(String containerName, String blobName) {
+        return containerRegistry.get(containerName).getBlobClient(blobName).getBlobUrl();
+    }
+    
+    @Override
+    public Readiness getReadiness() {
+        return containerRegistry.getReadiness();
+    }
+    
+    @Override
+    public Map<String, String> getContainerStatus() {
+        return containerRegistry.getContainerStatus();
+    }
+}
@@ -0,0 +1,20 @@
+package com.photoshare.storage;
+
+/**
+ * Metadata of a blob, without its content.
+ */
+public class BlobAttributes {
+    private final long length;
+    private final String etag;
+    private final String contentType;
+    
+    public BlobAttributes(long length, String etag, String contentType) {
+        this.length = length;
+        this.etag = etag;
+        this.contentType = contentType;
+    }
+    
+    public long getLength() { return length; }
+    public String getEtag() { return etag; }
+    public String getContentType() { return contentType; }
+}
@@ -0,0 +1,121 @@
+package com.photoshare.storage;
+
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.BlobServiceClient;
+import com.azure.storage.blob.models.BlobErrorCode;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.models.PublicAccessType;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds one client per storage container. The well-known containers are
+ * provisioned once at startup so request paths never pay an exists() call;
+ * a container that disappears at runtime is re-provisioned on demand.
+ */
+@Component
+@ConditionalOnProperty(name = "photoshare.storage.backend", havingValue = "azure", matchIfMissing = true)
+public class BlobContainerRegistry {
+    
+    private static final Logger log = LoggerFactory.getLogger(BlobContainerRegistry.class);
+    
+    @Autowired
+    private BlobServiceClient blobServiceClient;
+    
+    @Value("${photoshare.storage.containers:users,photos,images,comments,manifest,imagerefs}")
+    private List<String> containerNames;
+    
+    private final Map<String, BlobContainerClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, String> containerErrors = new ConcurrentHashMap<>();
+    private volatile StorageBackend.Readiness readiness = StorageBackend.Readiness.STARTING;
+    
+    @PostConstruct
+    public void provisionAll() {
+        for (String name : containerNames) {
+            try {
+                provision(name);
+            } catch (RuntimeException e) {
+                log.warn("Could not provision container {} at startup", name, e);
+            }
+        }
+        updateReadiness();
+        log.info("Storage containers provisioned, readiness {}", readiness);
+    }
+    
+    public BlobContainerClient get(String containerName) {
+        BlobContainerClient client = clients.get(containerName);
+        return client != null ? client : provision(containerName);
+    }
+    
+    /**
+     * Called when an operation reports the container as missing. Drops the
+     * cached client and provisions the container again.
+     */
+    public BlobContainerClient recover(String containerName) {
+        log.warn("Container {} reported missing, re-provisioning", containerName);
+        clients.remove(containerName);
+        return provision(containerName);
+    }
+    
+    public static boolean isContainerMissing(BlobStorageException e) {
+        return BlobErrorCode.CONTAINER_NOT_FOUND.equals(e.getErrorCode());
+    }
+    
+    public StorageBackend.Readiness getReadiness() {
+        return readiness;
+    }
+    
+    public Map<String, String> getContainerStatus() {
+        Map<String, String> status = new LinkedHashMap<>();
+        for (String name : containerNames) {
+            if (clients.containsKey(name)) {
+                status.put(name, "READY");
+            } else {
+                status.put(name, "UNAVAILABLE: " + containerErrors.getOrDefault(name, "not provisioned"));
+            }
+        }
+        return status;
+    }
+    
+    private BlobContainerClient provision(String containerName) {
+        // computeIfAbsent serializes concurrent provisioning of the same container
+        try {
+            return clients.computeIfAbsent(containerName, name -> {
+                BlobContainerClient client = blobServiceClient.getBlobContainerClient(name);
+                try {
+                    client.create();
+                    client.setAccessPolicy(PublicAccessType.BLOB, null);
+                    log.info("Created container {}", name);
+                } catch (BlobStorageException e) {
+                    if (!BlobErrorCode.CONTAINER_ALREADY_EXISTS.equals(e.getErrorCode())) {
+                        throw e;
+                    }
+                }
+                containerErrors.remove(name);
+                return client;
+            });
+        } catch (RuntimeException e) {
+            containerErrors.put(containerName, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            throw e;
+        } finally {
+            if (readiness != StorageBackend.Readiness.STARTING) {
+                updateReadiness();
+            }
+        }
+    }
+    
+    private void updateReadiness() {
+        boolean allReady = containerNames.stream().allMatch(clients::containsKey);
+        readiness = allReady ? StorageBackend.Readiness.READY : StorageBackend.Readiness.DEGRADED;
+    }
+}
@@ -0,0 +1,95 @@
+package com.photoshare.storage;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Runs every call of the wrapped backend inside its container's bulkhead.
+ * Listings take a permit per step of the iteration, not for their whole
+ * lifetime, so a long listing cannot starve the downloads it feeds.
+ */
+public class BulkheadStorageBackend implements StorageBackend {
+    
+    private final StorageBackend delegate;
+    private final ContainerBulkheads bulkheads;
+    
+    public BulkheadStorageBackend(StorageBackend delegate, ContainerBulkheads bulkheads) {
+        this.delegate = delegate;
+        this.bulkheads = bulkheads;
+    }
+    
+    @Override
+    public StoredBlob read(String containerName, String blobName, String ifNoneMatch) {
+        return bulkheads.call(containerName, () -> delegate.read(containerName, blobName, ifNoneMatch));
+    }
+    
+    @Override
+    public String write(String containerName, String blobName, byte[] data, String contentType) {
+        return bulkheads.call(containerName, () -> delegate.write(containerName, blobName, data, contentType));
+    }
+    
+    @Override
+    public String writeIfMatch(String containerName, String blobName, byte[] data, String contentType, String etag) {
+        return bulkheads.call(containerName,
+                () -> delegate.writeIfMatch(containerName, blobName, data, contentType, etag));
+    }
+    
+    @Override
+    public String writeStream(String containerName, String blobName, InputStream data, long length,
+                              String contentType) {
+        return bulkheads.call(containerName,
+                () -> delegate.writeStream(containerName, blobName, data, length, contentType));
+    }
+    
+    @Override
+    public BlobAttributes attributes(String containerName, String blobName) {
+        return bulkheads.call(containerName, () -> delegate.attributes(containerName, blobName));
+    }
+    
+    @Override
+    public BlobAttributes downloadToFile(String containerName, String blobName, Path target) {
+        return bulkheads.call(containerName, () -> delegate.downloadToFile(containerName, blobName, target));
+    }
+    
+    @Override
+    public boolean delete(String containerName, String blobName) {
+        return bulkheads.call(containerName, () -> delegate.delete(containerName, blobName));
+    }
+    
+    @Override
+    public Iterable<String> list(String containerName, String prefix) {
+        return () -> {
+            Iterator<String> names = bulkheads.call(containerName,
+                    () -> delegate.list(containerName, prefix).iterator());
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    // Fetching the next page is the blocking step
+                    return bulkheads.call(containerName, names::hasNext);
+                }
+                
+                @Override
+                public String next() {
+                    return names.next();
+                }
+            };
+        };
+    }
+    
+    @Override
+    public String url(String containerName, String blobName) {
+        return delegate.url(containerName, blobName);
+    }
+    
+    @Override
+    public Readiness getReadiness() {
+        return delegate.getReadiness();
+    }
+    
+    @Override
+    public Map<String, String> getContainerStatus() {
+        return delegate.getContainerStatus();
+    }
+}
@@ -0,0 +1,99 @@
+package com.photoshare.storage;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One semaphore per container capping concurrent storage calls, so a slow
+ * container exhausts only its own permits. Callers wait briefly for a permit
+ * and are then rejected with {@link StorageBusyException}.
+ */
+@Component
+public class ContainerBulkheads {
+    
+    // Comma-separated container:limit pairs; unlisted containers get the default
+    @Value("${photoshare.storage.bulkhead.limits:}")
+    private String limits;
+    
+    @Value("${photoshare.storage.bulkhead.default-limit:64}")
+    private int defaultLimit;
+    
+    @Value("${photoshare.storage.bulkhead.max-wait-ms:200}")
+    private long maxWaitMillis;
+    
+    private final Map<String, Bulkhead> bulkheads = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        if (limits == null || limits.isBlank()) {
+            return;
+        }
+        for (String entry : limits.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid bulkhead limit '" + entry + "', expected container:limit");
+            }
+            bulkheads.put(parts[0].trim(), new Bulkhead(Integer.parseInt(parts[1].trim())));
+        }
+    }
+    
+    public <R> R call(String containerName, StorageCall<R> call) {
+        Bulkhead bulkhead = bulkheads.computeIfAbsent(containerName, name -> new Bulkhead(defaultLimit));
+        bulkhead.acquire(containerName, maxWaitMillis);
+        try {
+            return call.apply();
+        } finally {
+            bulkhead.permits.release();
+        }
+    }
+    
+    @FunctionalInterface
+    public interface StorageCall<R> {
+        R apply();
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new TreeMap<>();
+        bulkheads.forEach((name, bulkhead) -> {
+            Map<String, Object> container = new LinkedHashMap<>();
+            container.put("limit", bulkhead.limit);
+            container.put("inFlight", bulkhead.limit - bulkhead.permits.availablePermits());
+            container.put("waiting", bulkhead.permits.getQueueLength());
+            container.put("rejected", bulkhead.rejected.sum());
+            stats.put(name, container);
+        });
+        return stats;
+    }
+    
+    private static class Bulkhead {
+        final int limit;
+        final Semaphore permits;
+        final LongAdder rejected = new LongAdder();
+        
+        Bulkhead(int limit) {
+            this.limit = Math.max(1, limit);
+            this.permits = new Semaphore(this.limit);
+        }
+        
+        void acquire(String containerName, long maxWaitMillis) {
+            try {
+                if (permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            rejected.increment();
+            throw new StorageBusyException(containerName);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.photoshare.storage;
+
+import com.photoshare.metrics.OperationMetrics;
+import com.photoshare.metrics.StorageMetrics;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.ToLongFunction;
+
+/**
+ * Records latency, bytes, errors and in-flight calls for every operation of
+ * the wrapped backend, per container. A listing is timed from its first page
+ * until it is exhausted, and counts as in flight only while a page is loading.
+ */
+public class InstrumentedStorageBackend implements StorageBackend {
+    
+    private final StorageBackend delegate;
+    private final StorageMetrics metrics;
+    
+    public InstrumentedStorageBackend(StorageBackend delegate, StorageMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+    
+    @Override
+    public StoredBlob read(String containerName, String blobName, String ifNoneMatch) {
+        return measure(containerName, "read",
+                () -> delegate.read(containerName, blobName, ifNoneMatch),
+                blob -> blob != null && blob != StoredBlob.NOT_MODIFIED ? blob.getData().length : 0);
+    }
+    
+    @Override
+    public String write(String containerName, String blobName, byte[] data, String contentType) {
+        return measure(containerName, "write",
+                () -> delegate.write(containerName, blobName, data, contentType), etag -> data.length);
+    }
+    
+    @Override
+    public String writeIfMatch(String containerName, String blobName, byte[] data, String contentType, String etag) {
+        OperationMetrics operation = metrics.get(containerName, "writeIfMatch");
+        long start = operation.start();
+        try {
+            String newEtag = delegate.writeIfMatch(containerName, blobName, data, contentType, etag);
+            operation.stop(start, data.length, false);
+            return newEtag;
+        } catch (PreconditionFailedException e) {
+            // A lost race is an expected outcome, not a storage error
+            operation.stop(start, 0, false);
+            throw e;
+        } catch (RuntimeException e) {
+            operation.stop(start, 0, true);
+            throw e;
+        }
+    }
+    
+    @Override
+    public String writeStream(String containerName, String blobName, InputStream data, long length,
+                              String contentType) {
+        return measure(containerName, "writeStream",
+                () -> delegate.writeStream(containerName, blobName, data, length, contentType), etag -> length);
+    }
+    
+    @Override
+    public BlobAttributes attributes(String containerName, String blobName) {
+        return measure(containerName, "attributes", () -> delegate.attributes(containerName, blobName), attributes -> 0);
+    }
+    
+    @Override
+    public BlobAttributes downloadToFile(String containerName, String blobName, Path target) {
+        return measure(containerName, "downloadToFile",
+                () -> delegate.downloadToFile(containerName, blobName, target),
+                attributes -> attributes != null ? attributes.getLength() : 0);
+    }
+    
+    @Override
+    public boolean delete(String containerName, String blobName) {
+        return measure(containerName, "delete", () -> delegate.delete(containerName, blobName), deleted -> 0);
+    }
+    
+    @Override
+    public Iterable<String> list(String containerName, String prefix) {
+        OperationMetrics operation = metrics.get(containerName, "list");
+        return () -> new Iterator<>() {
+            private final long start = System.nanoTime();
+            private Iterator<String> names;
+            private boolean done;
+            
+            @Override
+            public boolean hasNext() {
+                if (done) {
+                    return false;
+                }
+                boolean more;
+                operation.enter();
+                try {
+                    if (names == null) {
+                        names = delegate.list(containerName, prefix).iterator();
+                    }
+                    more = names.hasNext();
+                } catch (RuntimeException e) {
+                    done = true;
+                    operation.record(System.nanoTime() - start, 0, true);
+                    throw e;
+                } finally {
+                    operation.exit();
+                }
+                if (!more) {
+                    done = true;
+                    operation.record(System.nanoTime() - start, 0, false);
+                }
+                return more;
+            }
+            
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return names.next();
+            }
+        };
+    }
+    
+    @Override
+    public String url(String containerName, String blobName) {
+        return delegate.url(containerName, blobName);
+    }
+    
+    @Override
+    public Readiness getReadiness() {
+        return delegate.getReadiness();
+    }
+    
+    @Override
+    public Map<String, String> getContainerStatus() {
+        return delegate.getContainerStatus();
+    }
+    
+    private <R> R measure(String containerName, String operationName, StorageCall<R> call, ToLongFunction<R> bytes) {
+        OperationMetrics operation = metrics.get(containerName, operationName);
+        long start = operation.start();
+        try {
+            R result = call.apply();
+            operation.stop(start, bytes.applyAsLong(result), false);
+            return result;
+        } catch (RuntimeException e) {
+            operation.stop(start, 0, true);
+            throw e;
+        }
+    }
+    
+    @FunctionalInterface
+    private interface StorageCall<R> {
+        R apply();
+    }
+}
@@ -0,0 +1,523 @@
+package com.photoshare.storage;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.UserDefinedFileAttributeView;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Blobs as plain files under {@code photoshare.storage.local.root}, one
+ * directory per container, so the whole API can run offline at disk speed.
+ *
+ * Writes go to a temporary file that is flushed to disk and renamed over the
+ * target, so readers see either the old or the new content. The ETag is a
+ * hash of the content, computed while writing and kept with the content type
+ * in a user-defined extended attribute - set on the temporary file, so the
+ * rename publishes both at once - or in a hidden sidecar file where the file
+ * system has none. The stored metadata records the size and modification
+ * time it was written for and is only trusted while they still match;
+ * otherwise (files from older versions, a crash between the sidecar and
+ * content renames) the ETag is recomputed from the content. Conditional
+ * writes are serialized per blob through striped locks, which is enough
+ * within one process - the directory must not be shared between instances.
+ */
+@Component
+@ConditionalOnProperty(name = "photoshare.storage.backend", havingValue = "local")
+public class LocalFileStorageBackend implements StorageBackend {
+    
+    private static final Logger log = LoggerFactory.getLogger(LocalFileStorageBackend.class);
+    
+    private static final String TEMP_PREFIX = ".tmp-";
+    private static final String METADATA_PREFIX = ".meta-";
+    private static final String METADATA_ATTRIBUTE = "photoshare.metadata";
+    private static final int LOCK_STRIPES = 64;
+    
+    @Value("${photoshare.storage.local.root:data/storage}")
+    private String rootDirectory;
+    
+    @Value("${photoshare.storage.containers:users,photos,images,comments,manifest,imagerefs}")
+    private List<String> containerNames;
+    
+    @Value("${photoshare.storage.local.fsync:true}")
+    private boolean fsync;
+    
+    private Path root;
+    private boolean extendedAttributes;
+    private final ReadWriteLock[] locks = new ReadWriteLock[LOCK_STRIPES];
+    private final AtomicLong lastStamp = new AtomicLong();
+    private final Map<String, String> containerErrors = new ConcurrentHashMap<>();
+    private volatile Readiness readiness = Readiness.STARTING;
+    
+    public LocalFileStorageBackend() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+    
+    @PostConstruct
+    public void init() {
+        root = Paths.get(rootDirectory).toAbsolutePath().normalize();
+        for (String name : containerNames) {
+            try {
+                Files.createDirectories(root.resolve(name));
+            } catch (IOException e) {
+                containerErrors.put(name, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                log.warn("Could not create container directory {}", root.resolve(name), e);
+            }
+        }
+        extendedAttributes = probeExtendedAttributes();
+        readiness = containerErrors.isEmpty() ? Readiness.READY : Readiness.DEGRADED;
+        log.info("Local storage at {}, readiness {}, metadata in {}", root, readiness,
+                extendedAttributes ? "extended attributes" : "sidecar files");
+    }
+    
+    @Override
+    public StoredBlob read(String containerName, String blobName, String ifNoneMatch) {
+        Path path = resolve(containerName, blobName);
+        Lock lock = lockFor(containerName, blobName).readLock();
+        lock.lock();
+        try {
+            Metadata metadata = metadata(path);
+            if (metadata.etag.equals(ifNoneMatch)) {
+                return StoredBlob.NOT_MODIFIED;
+            }
+            return new StoredBlob(Files.readAllBytes(path), metadata.etag, metadata.contentType);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public String write(String containerName, String blobName, byte[] data, String contentType) {
+        Path path = resolve(containerName, blobName);
+        Path temp = writeTemp(path, data);
+        String newEtag = etag(newDigest().digest(data));
+        Lock lock = lockFor(containerName, blobName).writeLock();
+        lock.lock();
+        try {
+            return commit(temp, path, contentType, newEtag);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public String writeIfMatch(String containerName, String blobName, byte[] data, String contentType, String etag) {
+        Path path = resolve(containerName, blobName);
+        Path temp = writeTemp(path, data);
+        String newEtag = etag(newDigest().digest(data));
+        Lock lock = lockFor(containerName, blobName).writeLock();
+        lock.lock();
+        try {
+            String current = currentEtag(path);
+            if (etag == null ? current != null : !etag.equals(current)) {
+                Files.deleteIfExists(temp);
+                throw new PreconditionFailedException(containerName, blobName);
+            }
+            return commit(temp, path, contentType, newEtag);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public String writeStream(String containerName, String blobName, InputStream data, long length, String contentType) {
+        Path path = resolve(containerName, blobName);
+        Path temp = null;
+        MessageDigest digest = newDigest();
+        try {
+            createParent(path);
+            temp = Files.createTempFile(path.getParent(), TEMP_PREFIX, null);
+            // Hashed on the way through, so the stream is only read once
+            Files.copy(new DigestInputStream(data, digest), temp, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException(e);
+        }
+        String newEtag = etag(digest.digest());
+        Lock lock = lockFor(containerName, blobName).writeLock();
+        lock.lock();
+        try {
+            return commit(temp, path, contentType, newEtag);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public BlobAttributes attributes(String containerName, String blobName) {
+        Path path = resolve(containerName, blobName);
+        Lock lock = lockFor(containerName, blobName).readLock();
+        lock.lock();
+        try {
+            Metadata metadata = metadata(path);
+            return new BlobAttributes(metadata.size, metadata.etag, metadata.contentType);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public BlobAttributes downloadToFile(String containerName, String blobName, Path target) {
+        Path path = resolve(containerName, blobName);
+        Lock lock = lockFor(containerName, blobName).readLock();
+        lock.lock();
+        try {
+            Metadata metadata = metadata(path);
+            Files.copy(path, target, StandardCopyOption.REPLACE_EXISTING);
+            return new BlobAttributes(metadata.size, metadata.etag, metadata.contentType);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public boolean delete(String containerName, String blobName) {
+        Path path = resolve(containerName, blobName);
+        Lock lock = lockFor(containerName, blobName).writeLock();
+        lock.lock();
+        try {
+            boolean deleted = Files.deleteIfExists(path);
+            if (!extendedAttributes) {
+                Files.deleteIfExists(sidecar(path));
+            }
+            return deleted;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    @Override
+    public Iterable<String> list(String containerName, String prefix) {
+        Path container = resolveContainer(containerName);
+        // Only walk the directory the prefix points into, e.g. "{photoId}/" for comment segments
+        Path start = container;
+        if (prefix != null && prefix.lastIndexOf('/') > 0) {
+            start = resolve(containerName, prefix.substring(0, prefix.lastIndexOf('/')));
+        }
+        if (!Files.isDirectory(start)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(start)) {
+            return files
+                    .filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString().startsWith(TEMP_PREFIX)
+                            && !file.getFileName().toString().startsWith(METADATA_PREFIX))
+                    .map(file -> container.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/"))
+                    .filter(name -> prefix == null || name.startsWith(prefix))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    /** Image blobs are served by the image endpoint; other containers have no public URL. */
+    @Override
+    public String url(String containerName, String blobName) {
+        if ("images".equals(containerName)) {
+            return "/api/images/" + blobName;
+        }
+        return resolve(containerName, blobName).toUri().toString();
+    }
+    
+    @Override
+    public Readiness getReadiness() {
+        return readiness;
+    }
+    
+    @Override
+    public Map<String, String> getContainerStatus() {
+        Map<String, String> status = new LinkedHashMap<>();
+        for (String name : containerNames) {
+            String error = containerErrors.get(name);
+            status.put(name, error == null ? "READY" : "UNAVAILABLE: " + error);
+        }
+        return status;
+    }
+    
+    private Path writeTemp(Path path, byte[] data) {
+        Path temp = null;
+        try {
+            createParent(path);
+            temp = Files.createTempFile(path.getParent(), TEMP_PREFIX, null);
+            Files.write(temp, data);
+            return temp;
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    // Caller holds the blob's write lock
+    private String commit(Path temp, Path path, String contentType, String etag) {
+        try {
+            Files.setLastModifiedTime(temp, FileTime.from(nextStamp(), TimeUnit.NANOSECONDS));
+            // Recorded as the file system reports it, which may truncate the stamp
+            BasicFileAttributes written = Files.readAttributes(temp, BasicFileAttributes.class);
+            Metadata metadata = new Metadata(etag, contentType != null ? contentType : guessContentType(path),
+                    written.size(), written.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+            if (extendedAttributes) {
+                // Set on the temp file so the rename publishes content and metadata together
+                writeAttribute(temp, metadata);
+            }
+            force(temp);
+            if (!extendedAttributes) {
+                // Published first; until the content follows, its size and time no longer match
+                writeSidecar(path, metadata);
+            }
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return etag;
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void writeAttribute(Path file, Metadata metadata) throws IOException {
+        Files.getFileAttributeView(file, UserDefinedFileAttributeView.class)
+                .write(METADATA_ATTRIBUTE, StandardCharsets.UTF_8.encode(metadata.encode()));
+    }
+    
+    private void writeSidecar(Path path, Metadata metadata) throws IOException {
+        Path temp = Files.createTempFile(path.getParent(), TEMP_PREFIX, null);
+        try {
+            Files.writeString(temp, metadata.encode());
+            force(temp);
+            Files.move(temp, sidecar(path), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
+    
+    private void force(Path file) throws IOException {
+        if (!fsync) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+    
+    private String currentEtag(Path path) throws IOException {
+        try {
+            return metadata(path).etag;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+    
+    // Stored metadata while it matches the file; otherwise rebuilt from the content and stored again
+    private Metadata metadata(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long modified = attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+        Metadata stored = storedMetadata(path);
+        if (stored != null && stored.size == attributes.size() && stored.modified == modified) {
+            return stored;
+        }
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(path), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        Metadata rebuilt = new Metadata(etag(digest.digest()), guessContentType(path), attributes.size(), modified);
+        try {
+            if (extendedAttributes) {
+                writeAttribute(path, rebuilt);
+            } else {
+                writeSidecar(path, rebuilt);
+            }
+        } catch (IOException e) {
+            log.debug("Could not store rebuilt metadata for {}", path, e);
+        }
+        return rebuilt;
+    }
+    
+    private Metadata storedMetadata(Path path) throws IOException {
+        if (!extendedAttributes) {
+            try {
+                return Metadata.decode(Files.readString(sidecar(path)));
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+        UserDefinedFileAttributeView view = Files.getFileAttributeView(path, UserDefinedFileAttributeView.class);
+        if (!view.list().contains(METADATA_ATTRIBUTE)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(view.size(METADATA_ATTRIBUTE));
+        view.read(METADATA_ATTRIBUTE, buffer);
+        buffer.flip();
+        return Metadata.decode(StandardCharsets.UTF_8.decode(buffer).toString());
+    }
+    
+    // Wall-clock nanoseconds, bumped so a rewrite never leaves the stored metadata looking current
+    private long nextStamp() {
+        long now = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        return lastStamp.accumulateAndGet(now, (last, candidate) -> Math.max(last + 1, candidate));
+    }
+    
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    // The first 128 bits of the SHA-256 are plenty to tell versions apart
+    private static String etag(byte[] digest) {
+        return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+    }
+    
+    // For writers that gave no type, and files written without metadata
+    private static String guessContentType(Path path) throws IOException {
+        String name = path.getFileName().toString();
+        if (name.endsWith(".json")) {
+            return "application/json";
+        }
+        String probed = Files.probeContentType(path);
+        return probed != null ? probed : "application/octet-stream";
+    }
+    
+    private static Path sidecar(Path path) {
+        return path.resolveSibling(METADATA_PREFIX + path.getFileName());
+    }
+    
+    // Support is per file system and not always reported accurately, so try it on a scratch file
+    private boolean probeExtendedAttributes() {
+        Path probe = null;
+        try {
+            Files.createDirectories(root);
+            probe = Files.createTempFile(root, TEMP_PREFIX, null);
+            UserDefinedFileAttributeView view = Files.getFileAttributeView(probe, UserDefinedFileAttributeView.class);
+            if (view == null) {
+                return false;
+            }
+            view.write(METADATA_ATTRIBUTE, StandardCharsets.UTF_8.encode("probe"));
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            return false;
+        } finally {
+            deleteQuietly(probe);
+        }
+    }
+    
+    private Path resolveContainer(String containerName) {
+        Path container = root.resolve(containerName).normalize();
+        if (!container.getParent().equals(root)) {
+            throw new IllegalArgumentException("Invalid container name: " + containerName);
+        }
+        return container;
+    }
+    
+    // Blob names may contain "/" (comment segments) but must stay inside the container
+    private Path resolve(String containerName, String blobName) {
+        Path container = resolveContainer(containerName);
+        Path path = container.resolve(blobName).normalize();
+        if (!path.startsWith(container) || path.equals(container)) {
+            throw new IllegalArgumentException("Invalid blob name: " + blobName);
+        }
+        return path;
+    }
+    
+    private static void createParent(Path path) throws IOException {
+        Files.createDirectories(path.getParent());
+    }
+    
+    private ReadWriteLock lockFor(String containerName, String blobName) {
+        int h = containerName.hashCode() * 31 + blobName.hashCode();
+        return locks[(h ^ (h >>> 16)) & (LOCK_STRIPES - 1)];
+    }
+    
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete temporary file {}", path, e);
+        }
+    }
+    
+    /** What is stored next to each blob, with the file size and time it was written for. */
+    private static final class Metadata {
+        private final String etag;
+        private final String contentType;
+        private final long size;
+        private final long modified;
+        
+        Metadata(String etag, String contentType, long size, long modified) {
+            this.etag = etag;
+            this.contentType = contentType;
+            this.size = size;
+            this.modified = modified;
+        }
+        
+        String encode() {
+            return etag + "\n" + size + "\n" + modified + "\n" + contentType;
+        }
+        
+        // Null for anything unreadable, which is then treated as missing
+        static Metadata decode(String encoded) {
+            String[] fields = encoded.split("\n", -1);
+            if (fields.length != 4) {
+                return null;
+            }
+            try {
+                return new Metadata(fields[0], fields[3], Long.parseLong(fields[1]), Long.parseLong(fields[2]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.photoshare.storage;
+
+/**
+ * Thrown by conditional writes when the blob's current ETag does not match
+ * (or the blob exists when it was required not to).
+ */
+public class PreconditionFailedException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    public PreconditionFailedException(String containerName, String blobName) {
+        super("Precondition failed for " + containerName + "/" + blobName);
+    }
+}
@@ -0,0 +1,55 @@
+package com.photoshare.storage;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Raw blob storage underneath {@code BlobStorageService}. Implementations deal
+ * in bytes, names and ETags only; caching, serialization and retries live in
+ * the service. Selected with {@code photoshare.storage.backend}.
+ */
+public interface StorageBackend {
+    
+    enum Readiness { STARTING, READY, DEGRADED }
+    
+    /**
+     * Reads a blob. When {@code ifNoneMatch} is given and still current,
+     * returns {@link StoredBlob#NOT_MODIFIED} without transferring the content.
+     * Returns null if the blob does not exist.
+     */
+    StoredBlob read(String containerName, String blobName, String ifNoneMatch);
+    
+    /** Creates or replaces a blob; returns its new ETag. */
+    String write(String containerName, String blobName, byte[] data, String contentType);
+    
+    /**
+     * Writes only if the blob still has the given ETag; a null ETag means the
+     * blob must not exist yet. Returns the new ETag.
+     *
+     * @throws PreconditionFailedException if the condition does not hold
+     */
+    String writeIfMatch(String containerName, String blobName, byte[] data, String contentType, String etag);
+    
+    /** Streams {@code length} bytes into a blob; returns its new ETag. */
+    String writeStream(String containerName, String blobName, InputStream data, long length, String contentType);
+    
+    /** Length, ETag and content type of a blob without its content. Returns null if it does not exist. */
+    BlobAttributes attributes(String containerName, String blobName);
+    
+    /** Copies a blob into the given file. Returns null if the blob does not exist. */
+    BlobAttributes downloadToFile(String containerName, String blobName, Path target);
+    
+    /** Returns true if the blob existed. */
+    boolean delete(String containerName, String blobName);
+    
+    /** Blob names starting with the prefix (all blobs when null), in name order. */
+    Iterable<String> list(String containerName, String prefix);
+    
+    /** The URL clients use to fetch the blob. */
+    String url(String containerName, String blobName);
+    
+    Readiness getReadiness();
+    
+    Map<String, String> getContainerStatus();
+}
@@ -0,0 +1,21 @@
+package com.photoshare.storage;
+
+/**
+ * Thrown when a container's bulkhead is full and no permit freed up within
+ * the configured wait. Callers should answer 503 rather than queue further.
+ */
+public class StorageBusyException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final String containerName;
+    
+    public StorageBusyException(String containerName) {
+        super("Too many concurrent storage calls for container " + containerName);
+        this.containerName = containerName;
+    }
+    
+    public String getContainerName() {
+        return containerName;
+    }
+}
@@ -0,0 +1,24 @@
+package com.photoshare.storage;
+
+/**
+ * Blob content as read from a {@link StorageBackend}.
+ */
+public class StoredBlob {
+    
+    /** Returned by conditional reads when the caller's ETag is still current. */
+    public static final StoredBlob NOT_MODIFIED = new StoredBlob(null, null, null);
+    
+    private final byte[] data;
+    private final String etag;
+    private final String contentType;
+    
+    public StoredBlob(byte[] data, String etag, String contentType) {
+        this.data = data;
+        this.etag = etag;
+        this.contentType = contentType;
+    }
+    
+    public byte[] getData() { return data; }
+    public String getEtag() { return etag; }
+    public String getContentType() { return contentType; }
+}